@@ -0,0 +1,88 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationResult;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationType;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import io.jenkins.plugins.codeinsights.api.dto.Report.Data;
+import io.jenkins.plugins.codeinsights.api.dto.ReportDataType;
+import io.jenkins.plugins.codeinsights.api.dto.ReportResult;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic reports with a realistic shape: findings are spread
+ * over a pool of files (about 20 findings per file) and rules, as static
+ * analysis tools produce.
+ */
+public final class AnnotationDataset {
+
+    private static final AnnotationSeverity[] SEVERITIES = AnnotationSeverity.values();
+    private static final AnnotationType[] TYPES = AnnotationType.values();
+
+    private AnnotationDataset() {
+    }
+
+    public static Report report(int annotations, long seed) {
+        Report report = new Report();
+        report.setType("report");
+        report.setTitle("Synthetic analysis");
+        report.setDetails("Synthetic report of " + annotations + " findings");
+        report.setReportType(ReportType.BUG);
+        report.setResult(ReportResult.FAILED);
+        report.setLink("https://jenkins.example.com/job/acme/job/main/1/");
+        report.setCreatedOn(new Date(1700000000000L));
+        report.setUpdatedOn(new Date(1700000000000L));
+        Data data = new Data();
+        data.setTitle("Findings");
+        data.setType(ReportDataType.NUMBER);
+        data.setValue(annotations);
+        report.getData().add(data);
+        report.setAnnotations(annotations(annotations, seed));
+        return report;
+    }
+
+    public static List<Annotation> annotations(int count, long seed) {
+        Random random = new Random(seed);
+        int files = Math.max(1, count / 20);
+        int rules = 200;
+        List<Annotation> annotations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int file = random.nextInt(files);
+            int rule = random.nextInt(rules);
+            Annotation annotation = new Annotation();
+            annotation.setType("report_annotation");
+            annotation.setAnnotationType(TYPES[rule % TYPES.length]);
+            annotation.setSeverity(SEVERITIES[rule % SEVERITIES.length]);
+            annotation.setResult(AnnotationResult.FAILED);
+            annotation.setPath("module-" + (file % 50) + "/src/main/java/com/acme/pkg" + (file % 300) + "/Component" + file + ".java");
+            annotation.setLine(1 + random.nextInt(2000));
+            annotation.setTitle("Rule " + rule);
+            annotation.setSummary("Finding of rule " + rule + " described in a sentence of average length");
+            annotation.setCreatedOn(new Date(1700000000000L + i));
+            annotation.setUpdatedOn(new Date(1700000000000L + i));
+            annotations.add(annotation);
+        }
+        return annotations;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the publisher hot paths that do not involve the network:
+ * annotation chunking and report id computation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublisherBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int annotations;
+
+    private Report report;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        report = AnnotationDataset.report(annotations, 42L);
+    }
+
+    @Benchmark
+    public void chunking(Blackhole bh) {
+        // chunking assigns only missing external ids, reset them in place as
+        // a per invocation setup would dominate the measure of small sizes
+        for (Annotation annotation : report.getAnnotations()) {
+            annotation.setExternalId(null);
+        }
+        Iterator<Annotation> iterator = report.getAnnotations().iterator();
+        Map<String, Integer> occurrences = new HashMap<>();
+        while (iterator.hasNext()) {
+            List<Annotation> chunk = new ArrayList<>(CodeInsightsPublisher.ANNOTATIONS_CHUNK_SIZE);
+            CodeInsightsPublisher.nextChunk(iterator, chunk, "BUG-1", occurrences);
+            bh.consume(chunk);
+        }
+    }
+
+    @Benchmark
+    public String reportId() {
+        return ReportIds.of("acme/repository/feature%2Fbranch", report.getReportType(), "io.jenkins.plugins.codeinsights.impl.CodeInsightsTestReportBuilder");
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the Jackson serialization of reports and annotations, including
+ * the date formatting. {@code clientPayload} is what the Bitbucket client
+ * does with the DTOs it is given, a string and then the request entity bytes,
+ * {@code rawValuePayload} is the same when the annotations are pre-rendered
+ * to a {@link RawValue} as done before, and {@code digest} the additional
+ * work of the publisher, that streams the JSON into the content digest. The
+ * benchmark profile runs with the GC profiler, compare
+ * {@code gc.alloc.rate.norm} for the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int annotations;
+
+    private Report report;
+    private ObjectWriter writer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        report = AnnotationDataset.report(annotations, 42L);
+        writer = new ObjectMapper().writer();
+    }
+
+    @Benchmark
+    public long serializeReport() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writer.writeValue(out, report);
+        return out.count;
+    }
+
+    @Benchmark
+    public long serializeAnnotations() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        List<Annotation> list = report.getAnnotations();
+        writer.writeValue(out, list);
+        return out.count;
+    }
+
+    @Benchmark
+    public byte[] clientPayload() throws IOException {
+        return writer.writeValueAsString(report.getAnnotations()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] rawValuePayload() throws IOException {
+        RawValue payload = new RawValue(CodeInsightsJson.WRITER.writeValueAsString(report.getAnnotations()));
+        return writer.writeValueAsString(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String digest() throws IOException {
+        ReportDigestStore.Digest digest = new ReportDigestStore().newDigest(report);
+        digest.update(report.getAnnotations());
+        return digest.value();
+    }
+
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
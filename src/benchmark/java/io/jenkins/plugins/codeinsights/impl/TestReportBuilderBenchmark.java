@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import hudson.tasks.junit.TestResult;
+import io.jenkins.plugins.codeinsights.api.dto.Report.Data;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the data points computation of the test report from the whole test
+ * result tree (before, the tree is loaded from a synthetic JUnit report) with
+ * the computation from the counters cached by the action and the duration
+ * already loaded (after, an in progress report built again with the same
+ * number of tests).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestReportBuilderBenchmark {
+
+    @Param({ "1000", "50000" })
+    public int testCount;
+
+    private File report;
+    private int totalCount;
+    private int skipCount;
+    private int failCount;
+    private float duration;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        report = File.createTempFile("TEST-benchmark", ".xml");
+        try (PrintWriter writer = new PrintWriter(report, StandardCharsets.UTF_8)) {
+            writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.println("<testsuite name=\"com.acme.BenchmarkSuite\" time=\"12.5\">");
+            for (int i = 0; i < testCount; i++) {
+                writer.print("  <testcase classname=\"com.acme.Test" + (i / 20) + "\" name=\"test" + i + "\" time=\"0.01\"");
+                if (i % 500 == 0) {
+                    writer.println("><failure message=\"expected: 1 but was: 2\">java.lang.AssertionError</failure></testcase>");
+                    failCount++;
+                } else if (i % 100 == 0) {
+                    writer.println("><skipped/></testcase>");
+                    skipCount++;
+                } else {
+                    writer.println("/>");
+                }
+            }
+            writer.println("</testsuite>");
+        }
+        totalCount = testCount;
+        TestResult result = new TestResult();
+        result.parse(report, null);
+        result.tally();
+        duration = result.getDuration();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(report.toPath());
+    }
+
+    @Benchmark
+    public Collection<Data> fromTestResult() throws IOException {
+        TestResult result = new TestResult();
+        result.parse(report, null);
+        result.tally();
+        return CodeInsightsTestReportBuilder.buildData(result.getTotalCount(), result.getSkipCount(), result.getFailCount(), result.getDuration());
+    }
+
+    @Benchmark
+    public Collection<Data> fromSummary() {
+        return CodeInsightsTestReportBuilder.buildData(totalCount, skipCount, failCount, duration);
+    }
+}
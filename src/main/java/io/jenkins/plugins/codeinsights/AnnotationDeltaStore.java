@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import jenkins.util.SystemProperties;
+
+/**
+ * Remembers the external id of the annotations sent for each commit and
+ * report, so that the annotations no more produced by an update of the report
+ * can be deleted.
+ * <p>
+ * It is not documented if Bitbucket keeps the annotations of a report when
+ * the report is put again, so every update sends all its annotations. The
+ * state is kept only in memory, after a restart the annotations of previous
+ * updates are not known.
+ */
+@Extension
+public class AnnotationDeltaStore {
+
+    private static final int MAX_REPORTS = SystemProperties.getInteger(AnnotationDeltaStore.class.getName() + ".maxReports", 1000);
+
+    public static AnnotationDeltaStore get() {
+        return ExtensionList.lookupSingleton(AnnotationDeltaStore.class);
+    }
+
+    private final Map<String, Set<String>> reports = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+            return size() > MAX_REPORTS;
+        }
+    };
+
+    /**
+     * Records the annotations successfully sent.
+     *
+     * @param key of the commit and report
+     * @param ids the external ids of the annotations sent
+     */
+    public void record(String key, Collection<String> ids) {
+        synchronized (reports) {
+            reports.computeIfAbsent(key, k -> new HashSet<>()).addAll(ids);
+        }
+    }
+
+    /**
+     * Returns the annotations sent for the report that are not in the given
+     * set of ids.
+     *
+     * @param key of the commit and report
+     * @param current the external ids of the annotations of the report
+     * @return the external ids of the annotations sent before and no more
+     *         part of the report
+     */
+    public Set<String> stale(String key, Set<String> current) {
+        synchronized (reports) {
+            Set<String> published = reports.get(key);
+            if (published == null) {
+                return Set.of();
+            }
+            Set<String> stale = new HashSet<>(published);
+            stale.removeAll(current);
+            return stale;
+        }
+    }
+
+    /**
+     * Forgets the annotations sent for the report that are not in the given
+     * set of ids.
+     *
+     * @param key of the commit and report
+     * @param current the external ids of the annotations of the report
+     * @return the external ids of the annotations sent before and no more
+     *         part of the report
+     */
+    public Set<String> retain(String key, Set<String> current) {
+        synchronized (reports) {
+            Set<String> published = reports.get(key);
+            if (published == null) {
+                return Set.of();
+            }
+            Set<String> stale = new HashSet<>(published);
+            stale.removeAll(current);
+            published.removeAll(stale);
+            return stale;
+        }
+    }
+}
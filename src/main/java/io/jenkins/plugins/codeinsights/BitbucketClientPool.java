@@ -0,0 +1,322 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
+import com.cloudbees.hudson.plugins.folder.properties.FolderCredentialsProvider.FolderCredentialsProperty;
+import com.cloudbees.jenkins.plugins.bitbucket.BitbucketSCMSource;
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketApi;
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.model.PeriodicWork;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Shares authenticated Bitbucket clients between publishers of the same
+ * repository so that HTTP connections, TLS sessions and resolved credentials
+ * are reused across builds.
+ * <p>
+ * Clients are evicted when idle or older than the max age and invalidated
+ * when credentials change. A client is built outside the pool lock, callers
+ * that ask for the same repository meanwhile wait for the same client.
+ */
+@Extension
+public class BitbucketClientPool {
+    private static final Logger logger = Logger.getLogger(BitbucketClientPool.class.getName());
+
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(SystemProperties.getLong(BitbucketClientPool.class.getName() + ".idleTimeout", 10L));
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(SystemProperties.getLong(BitbucketClientPool.class.getName() + ".maxAge", 60L));
+
+    public static BitbucketClientPool get() {
+        return ExtensionList.lookupSingleton(BitbucketClientPool.class);
+    }
+
+    private record Key(String serverUrl, String credentialsId, String repoOwner, String repository) {
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<BitbucketApi> client = new CompletableFuture<>();
+        private final long created;
+        private long lastAccess;
+        private int leases;
+        private boolean stale;
+
+        private Entry(long created) {
+            this.created = created;
+        }
+    }
+
+    /**
+     * A client borrowed from the pool, must be closed to return the client to
+     * the pool.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Key key;
+        private final Entry entry;
+        private final BitbucketApi client;
+        private boolean released;
+
+        private Lease(Key key, Entry entry, BitbucketApi client) {
+            this.key = key;
+            this.entry = entry;
+            this.client = client;
+        }
+
+        public BitbucketApi getClient() {
+            return client;
+        }
+
+        @Override
+        public void close() {
+            synchronized (BitbucketClientPool.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                release(key, entry);
+            }
+        }
+    }
+
+    private final Map<Key, Entry> clients = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Borrows an authenticated client for the repository of the given source,
+     * the client is created if not already in the pool.
+     *
+     * @param source the Bitbucket source of the repository
+     * @return a lease to the pooled client
+     */
+    public Lease acquire(BitbucketSCMSource source) {
+        Key key = new Key(source.getServerUrl(), source.getCredentialsId(), source.getRepoOwner(), source.getRepository());
+        Entry entry;
+        boolean build = false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            entry = clients.get(key);
+            if (entry != null && now - entry.created > MAX_AGE) {
+                clients.remove(key);
+                discard(key, entry);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                entry = new Entry(now);
+                clients.put(key, entry);
+                build = true;
+            } else {
+                hits.incrementAndGet();
+            }
+            entry.leases++;
+            entry.lastAccess = now;
+        }
+
+        // building a client resolves credentials, do not block other repositories
+        if (build) {
+            try {
+                entry.client.complete(source.buildBitbucketClient());
+            } catch (RuntimeException | Error e) {
+                entry.client.completeExceptionally(e);
+            }
+        }
+        try {
+            return new Lease(key, entry, entry.client.join());
+        } catch (CompletionException e) {
+            synchronized (this) {
+                clients.remove(key, entry);
+                entry.stale = true;
+                release(key, entry);
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    // must hold the lock
+    private void release(Key key, Entry entry) {
+        entry.leases--;
+        entry.lastAccess = System.currentTimeMillis();
+        if (entry.stale && entry.leases == 0) {
+            closeClient(key, entry);
+        }
+    }
+
+    // must hold the lock, the entry has already been removed from the pool
+    private void discard(Key key, Entry entry) {
+        entry.stale = true;
+        if (entry.leases == 0) {
+            closeClient(key, entry);
+        }
+    }
+
+    /**
+     * Removes all clients from the pool. Clients in use are closed when their
+     * lease is released.
+     */
+    public synchronized void invalidateAll() {
+        for (Iterator<Map.Entry<Key, Entry>> it = clients.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Key, Entry> e = it.next();
+            it.remove();
+            discard(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Removes from the pool the clients built with any of the given
+     * credentials. Clients in use are closed when their lease is released.
+     *
+     * @param credentialsIds the ids of the changed credentials
+     */
+    public synchronized void invalidate(Set<String> credentialsIds) {
+        for (Iterator<Map.Entry<Key, Entry>> it = clients.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (credentialsIds.contains(e.getKey().credentialsId())) {
+                it.remove();
+                discard(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    synchronized void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Key, Entry>> it = clients.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Key, Entry> e = it.next();
+            Entry entry = e.getValue();
+            if (entry.leases == 0 && (now - entry.lastAccess > IDLE_TIMEOUT || now - entry.created > MAX_AGE)) {
+                it.remove();
+                closeClient(e.getKey(), entry);
+            }
+        }
+    }
+
+    private void closeClient(Key key, Entry entry) {
+        // a client that failed to build has nothing to close
+        BitbucketApi client = entry.client.isCompletedExceptionally() ? null : entry.client.getNow(null);
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, e, () -> "Fail to close bitbucket client for " + key.repoOwner() + "/" + key.repository());
+        }
+    }
+
+    /**
+     * Returns the number of clients in the pool.
+     *
+     * @return the pool size
+     */
+    public synchronized int getSize() {
+        return clients.size();
+    }
+
+    /**
+     * Returns the ratio of requests served by a pooled client.
+     *
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Extension
+    public static class IdleClientEviction extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() {
+            BitbucketClientPool.get().evictIdle();
+        }
+    }
+
+    /*
+     * Folder scoped credentials are stored in the folder configuration, a
+     * save of a folder invalidates only the clients of the credentials that
+     * the folder has or had at its previous save, so that deleted credentials
+     * are invalidated too. Credentials deleted at the first save after a
+     * restart are not known, their clients expire after maxAge.
+     */
+    @Extension
+    public static class CredentialsChangeListener extends SaveableListener {
+        private final Map<String, Set<String>> folderCredentials = new HashMap<>();
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider) {
+                BitbucketClientPool.get().invalidateAll();
+            } else if (o instanceof AbstractFolder<?> folder) {
+                FolderCredentialsProperty property = folder.getProperties().get(FolderCredentialsProperty.class);
+                Set<String> current = property != null ? credentialsIds(property) : Set.of();
+                Set<String> changed = new HashSet<>(current);
+                synchronized (folderCredentials) {
+                    Set<String> previous = current.isEmpty() ? folderCredentials.remove(folder.getFullName()) : folderCredentials.put(folder.getFullName(), current);
+                    if (previous != null) {
+                        changed.addAll(previous);
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    BitbucketClientPool.get().invalidate(changed);
+                }
+            }
+        }
+
+        private static Set<String> credentialsIds(FolderCredentialsProperty property) {
+            Set<String> ids = new HashSet<>();
+            for (List<Credentials> credentials : property.getDomainCredentialsMap().values()) {
+                for (Credentials c : credentials) {
+                    if (c instanceof IdCredentials idCredentials) {
+                        ids.add(idCredentials.getId());
+                    }
+                }
+            }
+            return ids;
+        }
+    }
+}
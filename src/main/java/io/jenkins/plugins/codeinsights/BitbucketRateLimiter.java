@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import jenkins.util.SystemProperties;
+
+/**
+ * Controller wide token bucket that limits the requests sent to the same
+ * Bitbucket workspace.
+ * <p>
+ * Requests waiting for a token are served in arrival order, so publishers of
+ * builds completed together queue up instead of racing against the Bitbucket
+ * rate limit.
+ */
+@Extension
+public class BitbucketRateLimiter {
+
+    private static final int REQUESTS_PER_HOUR = SystemProperties.getInteger(BitbucketRateLimiter.class.getName() + ".requestsPerHour", 1000);
+    private static final int BURST = SystemProperties.getInteger(BitbucketRateLimiter.class.getName() + ".burst", 100);
+
+    private static final class Bucket {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final double tokensPerNano;
+        private final double capacity;
+        private volatile double tokens;
+        private volatile long lastRefill;
+
+        private Bucket(int requestsPerHour, int burst) {
+            this.tokensPerNano = requestsPerHour / (double) TimeUnit.HOURS.toNanos(1);
+            this.capacity = Math.max(1, burst);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        // must be called holding the lock
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+
+        // estimate without locking, the lock is held while a request waits
+        private double getTokens() {
+            long last = lastRefill;
+            return Math.min(capacity, tokens + (System.nanoTime() - last) * tokensPerNano);
+        }
+    }
+
+    public static BitbucketRateLimiter get() {
+        return ExtensionList.lookupSingleton(BitbucketRateLimiter.class);
+    }
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong totalWait = new AtomicLong();
+    private final AtomicLong waiting = new AtomicLong();
+
+    /**
+     * Waits until a request can be sent to the given workspace.
+     *
+     * @param workspace the Bitbucket workspace
+     * @throws InterruptedIOException if interrupted while waiting for a token
+     */
+    public void acquire(String workspace) throws InterruptedIOException {
+        if (REQUESTS_PER_HOUR <= 0) {
+            return; // disabled
+        }
+
+        Bucket bucket = buckets.computeIfAbsent(workspace, k -> new Bucket(REQUESTS_PER_HOUR, BURST));
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            // the lock is fair, who holds it is the first in line for the next token
+            bucket.lock.lockInterruptibly();
+            try {
+                bucket.refill(System.nanoTime());
+                while (bucket.tokens < 1) {
+                    long wait = (long) Math.ceil((1 - bucket.tokens) / bucket.tokensPerNano);
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                    bucket.refill(System.nanoTime());
+                }
+                bucket.tokens -= 1;
+            } finally {
+                bucket.lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException ioe = new InterruptedIOException("Interrupted while waiting to send a request to workspace " + workspace);
+            ioe.initCause(e);
+            throw ioe;
+        } finally {
+            waiting.decrementAndGet();
+            totalWait.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Returns the tokens currently available for the given workspace.
+     *
+     * @param workspace the Bitbucket workspace
+     * @return the available tokens
+     */
+    public double getAvailableTokens(String workspace) {
+        Bucket bucket = buckets.get(workspace);
+        return bucket == null ? Math.max(1, BURST) : bucket.getTokens();
+    }
+
+    /**
+     * Returns the tokens currently available for each workspace.
+     *
+     * @return the available tokens per workspace
+     */
+    public Map<String, Double> getAvailableTokens() {
+        Map<String, Double> tokens = new TreeMap<>();
+        buckets.forEach((workspace, bucket) -> tokens.put(workspace, bucket.getTokens()));
+        return tokens;
+    }
+
+    /**
+     * Returns the tokens available for the workspace closest to its limit.
+     *
+     * @return the lowest available tokens among workspaces
+     */
+    public double getMinAvailableTokens() {
+        return buckets.values().stream().mapToDouble(Bucket::getTokens).min().orElse(Math.max(1, BURST));
+    }
+
+    /**
+     * Returns the number of requests waiting for a token.
+     *
+     * @return the waiting requests
+     */
+    public long getWaitingCount() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns the total time in milliseconds requests have waited for a
+     * token.
+     *
+     * @return the cumulative wait time in milliseconds
+     */
+    public long getTotalWaitTime() {
+        return totalWait.get();
+    }
+}
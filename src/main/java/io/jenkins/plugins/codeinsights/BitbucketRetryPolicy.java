@@ -0,0 +1,236 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketRequestException;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Retries Bitbucket requests that fail for rate limiting, server errors or
+ * connection issues using an exponential backoff with full jitter. Other
+ * failures, like client errors or malformed responses, are not retried.
+ * <p>
+ * Each workspace has a budget of retries per minute, once exhausted requests
+ * fail immediately so that a Bitbucket outage does not pile up waiting
+ * publishers. Retries of the requests that publish a report are counted by
+ * report type, the others (pull request changes, report listing) together.
+ */
+@Extension
+public class BitbucketRetryPolicy {
+    private static final Logger logger = Logger.getLogger(BitbucketRetryPolicy.class.getName());
+
+    private static final int MAX_ATTEMPTS = SystemProperties.getInteger(BitbucketRetryPolicy.class.getName() + ".maxAttempts", 5);
+    private static final long BASE_DELAY = SystemProperties.getLong(BitbucketRetryPolicy.class.getName() + ".baseDelay", 1000L);
+    private static final long MAX_DELAY = SystemProperties.getLong(BitbucketRetryPolicy.class.getName() + ".maxDelay", 60000L);
+    private static final long RATE_LIMIT_DELAY = SystemProperties.getLong(BitbucketRetryPolicy.class.getName() + ".rateLimitDelay", 10000L);
+    private static final int RETRY_BUDGET = SystemProperties.getInteger(BitbucketRetryPolicy.class.getName() + ".retryBudget", 60);
+    private static final long BUDGET_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * A request to Bitbucket.
+     *
+     * @param <T> the type of the response
+     */
+    @FunctionalInterface
+    public interface Request<T> {
+        T execute() throws IOException;
+    }
+
+    private static final class Budget {
+        private long windowStart;
+        private int used;
+
+        private synchronized boolean tryConsume(long now, int limit) {
+            if (now - windowStart >= BUDGET_WINDOW) {
+                windowStart = now;
+                used = 0;
+            }
+            if (used >= limit) {
+                return false;
+            }
+            used++;
+            return true;
+        }
+    }
+
+    public static BitbucketRetryPolicy get() {
+        return ExtensionList.lookupSingleton(BitbucketRetryPolicy.class);
+    }
+
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long rateLimitDelay;
+    private final int retryBudget;
+
+    public BitbucketRetryPolicy() {
+        this(MAX_ATTEMPTS, BASE_DELAY, MAX_DELAY, RATE_LIMIT_DELAY, RETRY_BUDGET);
+    }
+
+    BitbucketRetryPolicy(int maxAttempts, long baseDelay, long maxDelay, long rateLimitDelay, int retryBudget) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.rateLimitDelay = rateLimitDelay;
+        this.retryBudget = retryBudget;
+    }
+
+    /**
+     * Executes the given request, retrying it when fails with a transient
+     * error.
+     *
+     * @param <T> the type of the response
+     * @param workspace the Bitbucket workspace the request is sent to
+     * @param request the request to execute
+     * @return the response of the request
+     * @throws IOException the last failure when the request can not be retried
+     *         anymore
+     */
+    public <T> T execute(String workspace, Request<T> request) throws IOException {
+        return execute(workspace, null, request);
+    }
+
+    /**
+     * Executes the given request like {@link #execute(String, Request)},
+     * retries are counted for the given type of report.
+     *
+     * @param <T> the type of the response
+     * @param workspace the Bitbucket workspace the request is sent to
+     * @param reportType the type of the report the request publishes, or
+     *        {@code null} when not about a report
+     * @param request the request to execute
+     * @return the response of the request
+     * @throws IOException the last failure when the request can not be retried
+     *         anymore
+     */
+    public <T> T execute(String workspace, @CheckForNull ReportType reportType, Request<T> request) throws IOException {
+        String retries = reportType != null ? CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.RETRIES) : CodeInsightsMetrics.RETRIES;
+        for (int attempt = 1;; attempt++) {
+            try {
+                return request.execute();
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)
+                        || !budgets.computeIfAbsent(workspace, k -> new Budget()).tryConsume(System.currentTimeMillis(), retryBudget)) {
+                    throw e;
+                }
+
+                long delay = computeDelay(attempt, isRateLimited(e));
+                int current = attempt;
+                CodeInsightsMetrics.get().counter(retries).inc();
+                logger.fine(() -> "Retry " + current + " of a request to workspace " + workspace + " in " + delay + "ms: " + e.getMessage());
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Executes the given request like {@link #execute(String, Request)}, every
+     * attempt waits its turn on the {@link BitbucketRateLimiter} of the
+     * workspace.
+     *
+     * @param <T> the type of the response
+     * @param workspace the Bitbucket workspace the request is sent to
+     * @param request the request to execute
+     * @return the response of the request
+     * @throws IOException the last failure when the request can not be retried
+     *         anymore
+     */
+    public <T> T executeLimited(String workspace, Request<T> request) throws IOException {
+        return executeLimited(workspace, null, request);
+    }
+
+    /**
+     * Executes the given request like {@link #execute(String, ReportType, Request)},
+     * every attempt waits its turn on the {@link BitbucketRateLimiter} of the
+     * workspace.
+     *
+     * @param <T> the type of the response
+     * @param workspace the Bitbucket workspace the request is sent to
+     * @param reportType the type of the report the request publishes, or
+     *        {@code null} when not about a report
+     * @param request the request to execute
+     * @return the response of the request
+     * @throws IOException the last failure when the request can not be retried
+     *         anymore
+     */
+    public <T> T executeLimited(String workspace, @CheckForNull ReportType reportType, Request<T> request) throws IOException {
+        BitbucketRateLimiter rateLimiter = BitbucketRateLimiter.get();
+        return execute(workspace, reportType, () -> {
+            rateLimiter.acquire(workspace);
+            return request.execute();
+        });
+    }
+
+    /*
+     * Full jitter backoff, rate limited requests wait at least
+     * rateLimitDelay because the Bitbucket client does not surface the
+     * Retry-After header of the response.
+     */
+    long computeDelay(int attempt, boolean rateLimited) {
+        long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return rateLimited ? Math.max(delay, Math.min(rateLimitDelay, maxDelay)) : delay;
+    }
+
+    /*
+     * Only rate limiting, server errors and connection failures are
+     * transient, the client wraps the latter in a generic IOException so the
+     * causes are inspected too.
+     */
+    static boolean isRetryable(IOException e) {
+        if (e instanceof BitbucketRequestException bre) {
+            int code = bre.getHttpCode();
+            return code == 429 || code >= 500;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SocketException || t instanceof SocketTimeoutException || t instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRateLimited(IOException e) {
+        return e instanceof BitbucketRequestException bre && bre.getHttpCode() == 429;
+    }
+
+    private void sleep(long delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException ioe = new InterruptedIOException("Interrupted while waiting to retry a Bitbucket request");
+            ioe.initCause(e);
+            throw ioe;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.cloudbees.jenkins.plugins.bitbucket.BitbucketSCMSource;
+import com.cloudbees.jenkins.plugins.bitbucket.api.endpoint.BitbucketEndpoint;
+import com.cloudbees.jenkins.plugins.bitbucket.api.endpoint.BitbucketEndpointProvider;
+import com.cloudbees.jenkins.plugins.bitbucket.api.endpoint.EndpointType;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import jenkins.model.GlobalConfiguration;
+
+/**
+ * Controller wide cache of the Bitbucket repository resolved for a job,
+ * keyed by the job full name.
+ * <p>
+ * Entries are invalidated when the job or one of its parents is saved, moved
+ * or deleted, and when a global configuration (like the Bitbucket endpoints)
+ * changes.
+ */
+@Extension
+public class BitbucketSourceCache {
+
+    /**
+     * The Bitbucket repository used by a job.
+     *
+     * @param source the SCM source of the job
+     * @param owner the repository owner (workspace)
+     * @param repository the repository slug
+     * @param endpointType the type of the Bitbucket server or {@code null} if
+     *        the endpoint is not configured
+     */
+    public record Resolved(BitbucketSCMSource source, String owner, String repository, @CheckForNull EndpointType endpointType) {
+    }
+
+    public static BitbucketSourceCache get() {
+        return ExtensionList.lookupSingleton(BitbucketSourceCache.class);
+    }
+
+    private final Map<String, Optional<Resolved>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the Bitbucket repository used by the given job, resolving it
+     * only when not already cached.
+     *
+     * @param job the Jenkins project
+     * @param scmFacade a facade for Jenkins SCM
+     * @return the resolved repository or empty if the job does not use
+     *         Bitbucket
+     */
+    public Optional<Resolved> resolve(Job<?, ?> job, SCMFacade scmFacade) {
+        return cache.computeIfAbsent(job.getFullName(), name -> scmFacade.findBitbucketSCMSource(job).map(source -> {
+            EndpointType endpointType = BitbucketEndpointProvider.lookupEndpoint(source.getServerUrl())
+                    .map(BitbucketEndpoint::getType)
+                    .orElse(null);
+            return new Resolved(source, source.getRepoOwner(), source.getRepository(), endpointType);
+        }));
+    }
+
+    /**
+     * Removes the entries of the given item and of all its descendants.
+     *
+     * @param fullName the full name of an item
+     */
+    public void invalidate(String fullName) {
+        String prefix = fullName + "/";
+        cache.keySet().removeIf(name -> name.equals(fullName) || name.startsWith(prefix));
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    @Extension
+    public static class ConfigurationChangeListener extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Item item) {
+                BitbucketSourceCache.get().invalidate(item.getFullName());
+            } else if (o instanceof GlobalConfiguration) {
+                BitbucketSourceCache.get().invalidateAll();
+            }
+        }
+    }
+
+    @Extension
+    public static class ItemChangeListener extends ItemListener {
+
+        @Override
+        public void onDeleted(Item item) {
+            BitbucketSourceCache.get().invalidate(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            BitbucketSourceCache.get().invalidate(oldFullName);
+        }
+    }
+}
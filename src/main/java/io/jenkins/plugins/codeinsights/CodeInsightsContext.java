@@ -17,14 +17,13 @@
 package io.jenkins.plugins.codeinsights;
 
 import com.cloudbees.jenkins.plugins.bitbucket.BitbucketSCMSource;
-import com.cloudbees.jenkins.plugins.bitbucket.api.endpoint.BitbucketEndpoint;
-import com.cloudbees.jenkins.plugins.bitbucket.api.endpoint.BitbucketEndpointProvider;
 import com.cloudbees.jenkins.plugins.bitbucket.api.endpoint.EndpointType;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import hudson.model.Job;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import jenkins.scm.api.SCMHead;
 import jenkins.scm.api.SCMRevision;
 import org.apache.commons.lang3.StringUtils;
@@ -46,10 +45,17 @@ public class CodeInsightsContext {
     private final DisplayURLProvider urlProvider;
     private final SCMFacade scmFacade;
     @CheckForNull
-    private final String sha;
+    private final BitbucketSourceCache.Resolved source;
+    @CheckForNull
+    private volatile String sha;
+    private volatile boolean shaResolved;
+    // timings are recorded on the run only once the context is valid
+    private final CodeInsightsTimingAction.Phase sourcePhase;
+    private volatile CodeInsightsTimingAction.Phase shaPhase;
 
     /**
-     * Creates a {@link CodeInsightsContext} according to the job and run, if provided. All attributes are computed during this period.
+     * Creates a {@link CodeInsightsContext} according to the job and run, if provided. The SCM source is computed during
+     * this period, the head SHA when first requested.
      *
      * @param job
      *         a Multibranch Source project
@@ -65,7 +71,31 @@ public class CodeInsightsContext {
         this.urlProvider = urlProvider;
         this.scmFacade = scmFacade;
         this.run = run;
-        this.sha = Optional.ofNullable(run).map(this::resolveHeadSha).orElse(resolveHeadSha(job));
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        this.source = BitbucketSourceCache.get().resolve(job, scmFacade).orElse(null);
+        this.sourcePhase = new CodeInsightsTimingAction.Phase("SCM source", start, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    /*
+     * The SHA of a run is recorded locally in its SCMRevisionAction, the SHA
+     * of a job is the current head revision fetched from the remote
+     * repository, a previous build could be of an older commit.
+     */
+    @CheckForNull
+    private String resolveSha() {
+        if (!shaResolved) {
+            synchronized (this) {
+                if (!shaResolved) {
+                    long start = System.currentTimeMillis();
+                    long startNanos = System.nanoTime();
+                    sha = run != null ? resolveHeadSha(run) : resolveHeadSha(job);
+                    shaPhase = new CodeInsightsTimingAction.Phase("Head SHA", start, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+                    shaResolved = true;
+                }
+            }
+        }
+        return sha;
     }
 
     /**
@@ -104,6 +134,7 @@ public class CodeInsightsContext {
      * @return the commit sha of the run
      */
     public String getHeadSha() {
+        String sha = resolveSha();
         if (StringUtils.isBlank(sha)) {
             throw new IllegalStateException("No SHA found for job: " + getJob().getName());
         }
@@ -118,17 +149,16 @@ public class CodeInsightsContext {
      * @return the source repository's full name
      */
     public String getRepository() {
-        BitbucketSCMSource source = resolveSource();
         if (source == null) {
             throw new IllegalStateException("No GitHub SCM source found for job: " + getJob().getName());
         }
         else {
-            return source.getRepository();
+            return source.repository();
         }
     }
 
     public String getOwner() {
-        return Optional.ofNullable(resolveSource()).map(BitbucketSCMSource::getRepoOwner).orElse(null);
+        return source != null ? source.owner() : null;
     }
 
     /**
@@ -141,28 +171,26 @@ public class CodeInsightsContext {
     public boolean isValid(final TaskListener logger) {
         logger.getLogger().println("Trying to resolve checks parameters from Bitbucket SCM...");
 
-        BitbucketSCMSource source = resolveSource();
         if (source == null) {
             logger.error("Job does not use Bitbucket SCM");
 
             return false;
         }
 
-        if (StringUtils.isBlank(sha)) {
-            logger.error("No HEAD SHA found for %s", getRepository());
+        if (source.endpointType() != EndpointType.CLOUD) {
+            logger.error("Bitbucket Data Center does is not supports code insights");
 
             return false;
         }
 
-        EndpointType endpointType = BitbucketEndpointProvider.lookupEndpoint(source.getServerUrl())
-                .map(BitbucketEndpoint::getType)
-                .orElse(null);
-        if (endpointType != EndpointType.CLOUD) {
-            logger.error("Bitbucket Data Center does is not supports code insights");
+        if (StringUtils.isBlank(resolveSha())) {
+            logger.error("No HEAD SHA found for %s", getRepository());
 
             return false;
         }
 
+        CodeInsightsTimingAction.record(run, sourcePhase);
+        CodeInsightsTimingAction.record(run, shaPhase);
         return true;
     }
 
@@ -177,7 +205,7 @@ public class CodeInsightsContext {
 
     @CheckForNull
     BitbucketSCMSource resolveSource() {
-        return scmFacade.findBitbucketSCMSource(getJob()).orElse(null);
+        return source != null ? source.source() : null;
     }
 
     @CheckForNull
@@ -198,7 +226,7 @@ public class CodeInsightsContext {
         BitbucketSCMSource source = resolveSource();
         Optional<SCMHead> head = scmFacade.findHead(job);
         if (source != null && head.isPresent()) {
-            Optional<SCMRevision> revision = scmFacade.findRevision(source, head.get());
+            Optional<SCMRevision> revision = SCMRevisionCache.get().fetch(source, head.get(), scmFacade);
             if (revision.isPresent()) {
                 return scmFacade.findHash(revision.get()).orElse(null);
             }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * JSON serialization and parsing of the Code Insights DTOs owned by this
+ * plugin.
+ * <p>
+ * The {@link ObjectWriter} is configured once and shared, so bean serializers
+ * are introspected once and the DTO annotations stay the only description of
+ * the JSON format. Request payloads are passed to the Bitbucket client as
+ * DTOs and serialized only by the client, the content digest and the payload
+ * size are computed streaming the same JSON, without buffering it.
+ */
+public final class CodeInsightsJson {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(Include.NON_NULL);
+
+    static final ObjectWriter WRITER = MAPPER.writer()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final ObjectReader READER = MAPPER.reader()
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private CodeInsightsJson() {
+    }
+
+    /**
+     * Serializes the given value in the given stream.
+     *
+     * @param out the target stream, it is not closed
+     * @param value to serialize
+     * @throws IOException if fails to write the stream
+     */
+    public static void write(OutputStream out, Object value) throws IOException {
+        WRITER.writeValue(out, value);
+    }
+
+    /**
+     * Converts the given value to its JSON tree.
+     *
+     * @param value to convert, serialized as an object
+     * @return the JSON object of the value
+     */
+    public static ObjectNode toTree(Object value) {
+        return MAPPER.valueToTree(value);
+    }
+
+    /**
+     * Returns the size of the JSON of the given value, without buffering it.
+     *
+     * @param value to measure
+     * @return the number of bytes of the serialized value
+     * @throws IOException if fails to serialize
+     */
+    public static long size(Object value) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        WRITER.writeValue(out, value);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    /**
+     * Reads a report from the given stream.
+     *
+     * @param in the source stream, it is closed
+     * @return the read report
+     * @throws IOException if fails to read or parse the stream
+     */
+    public static Report readReport(InputStream in) throws IOException {
+        return READER.forType(Report.class).readValue(in);
+    }
+
+    /**
+     * Reads lazily the annotations from the given stream, that could contain
+     * a JSON array of annotations or a sequence of annotation objects. Only
+     * the current annotation is retained in memory.
+     *
+     * @param in the source stream, it is closed when the iterator is closed
+     * @return an iterator over the annotations of the stream
+     * @throws IOException if fails to read the stream
+     */
+    public static MappingIterator<Annotation> readAnnotations(InputStream in) throws IOException {
+        return READER.forType(Annotation.class).readValues(in);
+    }
+}
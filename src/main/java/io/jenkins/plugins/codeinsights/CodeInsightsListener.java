@@ -18,48 +18,211 @@ package io.jenkins.plugins.codeinsights;
 
 import hudson.Extension;
 import hudson.ExtensionList;
+import hudson.init.Terminator;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.RunListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
-import java.io.IOException;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import io.jenkins.plugins.codeinsights.api.dto.ReportResult;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
 import org.jenkinsci.plugins.displayurlapi.DisplayURLProvider;
 
 /**
  * Sends CodeInsights report to Bitbucket Cloud on Run completed.
+ * <p>
+ * Each report builder runs concurrently on a bounded pool and its report is
+ * handed to the {@link CodeInsightsPublishingQueue} as soon as it is built. A
+ * builder that does not complete within the configured timeout is cancelled.
+ * <p>
+ * Pipelines publish also in progress reports at the end of each stage, see
+ * {@link CodeInsightsStageListener}. Once all the reports of a completed run
+ * are published, the stale reports of the job are collected by the
+ * {@link ReportGarbageCollector}.
  */
 @Extension
 public class CodeInsightsListener extends RunListener<Run<?, ?>> {
     private static final Logger logger = Logger.getLogger(CodeInsightsListener.class.getName());
+
+    private static final int BUILDER_THREADS = SystemProperties.getInteger(CodeInsightsListener.class.getName() + ".builderThreads", 4);
+    private static final long BUILDER_TIMEOUT = SystemProperties.getLong(CodeInsightsListener.class.getName() + ".builderTimeout", 300L);
+    private static final long SHUTDOWN_TIMEOUT = SystemProperties.getLong(CodeInsightsListener.class.getName() + ".shutdownTimeout", 30L);
+    /**
+     * Attained once the report builders are stopped, the publishing queue
+     * is drained after.
+     */
+    static final String BUILDERS_STOPPED = "CodeInsightsBuildersStopped";
+    private static final ThreadPoolExecutor buildersExecutor;
+
+    static {
+        buildersExecutor = new ThreadPoolExecutor(BUILDER_THREADS, BUILDER_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "CodeInsightsReportBuilder"));
+        buildersExecutor.allowCoreThreadTimeOut(true);
+    }
+
     private SCMFacade scmFacade;
 
     public CodeInsightsListener() {
         scmFacade = new SCMFacade();
     }
 
+    public static CodeInsightsListener get() {
+        return ExtensionList.lookupSingleton(CodeInsightsListener.class);
+    }
+
     @Override
     public void onCompleted(Run<?, ?> run, TaskListener listener) {
+        publish(run, listener, false);
+    }
+
+    /**
+     * Builds and publishes the reports of the given run.
+     * <p>
+     * Each builder of a completed run is recorded in the {@link ReportOutbox}
+     * before it is dispatched, so that its report is rebuilt on restart if
+     * not published before. Reports of a run in progress are published as
+     * pending, unless already failed, and are not recorded in the outbox
+     * because the run will publish them again when completed.
+     *
+     * @param run to report
+     * @param listener the build listener
+     * @param inProgress if the run is still building
+     */
+    void publish(Run<?, ?> run, TaskListener listener, boolean inProgress) {
         CodeInsightsContext context = CodeInsightsContext.fromRun(run, DisplayURLProvider.get(), scmFacade);
         if (!context.isValid(listener)) {
             return;
         }
 
-        try (CodeInsightsPublisher publisher = new CodeInsightsPublisher(context)) {
-            ExtensionList<CodeInsightsReporBuilder> builders = ExtensionList.lookup(CodeInsightsReporBuilder.class);
-            builders.forEach(builder -> {
-                builder.build(run, context).ifPresent(report -> {
-                    try {
-                        publisher.publish(report);
-                    } catch (IOException e) {
-                        listener.error("Fail to publish code insights {0}", report.getReportType());
-                        logger.log(Level.SEVERE, e, () -> "Fail to publish code insights " + report.getReportType());
+        CodeInsightsPublishingQueue queue = CodeInsightsPublishingQueue.get();
+        ReportGarbageCollector collector = ReportGarbageCollector.get();
+        if (!inProgress) {
+            // from now on in progress reports of the run are rejected
+            queue.complete(run);
+            collector.begin(run, context);
+        }
+        ExtensionList<CodeInsightsReporBuilder> builders = ExtensionList.lookup(CodeInsightsReporBuilder.class);
+        builders.forEach(builder -> {
+            long outboxId = inProgress ? -1 : ReportOutbox.get().add(run, builder, 1);
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                long start = System.nanoTime();
+                Optional<Report> report = builder.build(run, context);
+                CodeInsightsTimingAction.record(run, "Build " + builder.getClass().getSimpleName(), start);
+                // reports of running builds are partial, do not mix their timings with final ones
+                String metric = inProgress ? CodeInsightsMetrics.BUILD_TIME_IN_PROGRESS : CodeInsightsMetrics.BUILD_TIME;
+                CodeInsightsMetrics.get().histogram(CodeInsightsMetrics.builderMetric(builder, metric))
+                        .update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (!inProgress) {
+                    if (report.isPresent()) {
+                        queue.submit(context, builder, report.get(), outboxId);
+                    } else {
+                        ReportOutbox.get().ack(outboxId);
                     }
-                });
+                } else {
+                    report.ifPresent(r -> {
+                        if (r.getResult() != ReportResult.FAILED) {
+                            r.setResult(ReportResult.PENDING);
+                        }
+                        // the same id of the report published when completed
+                        if (r.getExternalId() == null) {
+                            r.setExternalId(ReportIds.of(run.getParent(), r.getReportType(), builder.getClass().getName()));
+                        }
+                        if (queue.submitInProgress(context, r, builder.annotations(run, context, r))) {
+                            collector.produced(run, r.getExternalId());
+                        }
+                    });
+                }
+                return null;
             });
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, e, () -> "Fail to close bitbucket client");
+            if (!inProgress) {
+                collector.pending(run);
+            }
+            buildersExecutor.execute(() -> runWithTimeout(task, builder, run, !inProgress, outboxId));
+        });
+        if (!inProgress) {
+            collector.done(run);
+        }
+    }
+
+    /**
+     * Rebuilds and publishes the report of an entry of the {@link ReportOutbox}
+     * on the builders pool, with the same timeout of the other builders.
+     *
+     * @param run that produced the report
+     * @param builder that builds the report
+     * @param outboxId of the journal entry to acknowledge once published
+     */
+    void replay(Run<?, ?> run, CodeInsightsReporBuilder builder, long outboxId) {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            CodeInsightsContext context = CodeInsightsContext.fromRun(run, DisplayURLProvider.get(), scmFacade);
+            Optional<Report> report = context.isValid(TaskListener.NULL) ? builder.build(run, context) : Optional.empty();
+            if (report.isPresent()) {
+                CodeInsightsPublishingQueue.get().submit(context, builder, report.get(), outboxId);
+            } else {
+                ReportOutbox.get().ack(outboxId);
+            }
+            return null;
+        });
+        buildersExecutor.execute(() -> runWithTimeout(task, builder, run, false, outboxId));
+    }
+
+    /*
+     * The run is tracked by the garbage collector only when its final
+     * reports are published.
+     */
+    private void runWithTimeout(FutureTask<Void> task, CodeInsightsReporBuilder builder, Run<?, ?> run, boolean tracked, long outboxId) {
+        // the timeout starts when the builder is executed, not when it is queued
+        ScheduledFuture<?> watchdog = Timer.get().schedule(() -> {
+            if (task.cancel(true)) {
+                CodeInsightsMetrics.get().counter(CodeInsightsMetrics.builderMetric(builder, CodeInsightsMetrics.TIMEOUTS)).inc();
+                logger.warning(() -> "Code insights report builder " + builder.getClass().getName() + " cancelled after " + BUILDER_TIMEOUT + " seconds for " + run.getFullDisplayName());
+            }
+        }, BUILDER_TIMEOUT, TimeUnit.SECONDS);
+        try {
+            task.run();
+            task.get();
+        } catch (InterruptedException | CancellationException e) {
+            // cancelled by the watchdog, already logged
+            ReportOutbox.get().fail(outboxId);
+            if (tracked) {
+                ReportGarbageCollector.get().incomplete(run);
+            }
+        } catch (ExecutionException e) {
+            ReportOutbox.get().fail(outboxId);
+            if (tracked) {
+                ReportGarbageCollector.get().incomplete(run);
+            }
+            CodeInsightsMetrics.get().counter(CodeInsightsMetrics.builderMetric(builder, CodeInsightsMetrics.FAILURES)).inc();
+            logger.log(Level.SEVERE, e.getCause(), () -> "Fail to build code insights report with " + builder.getClass().getName() + " for " + run.getFullDisplayName());
+        } finally {
+            watchdog.cancel(false);
+            if (tracked) {
+                ReportGarbageCollector.get().done(run);
+            }
+        }
+    }
+
+    @Terminator(attains = BUILDERS_STOPPED)
+    public static void shutdown() throws InterruptedException {
+        buildersExecutor.shutdown();
+        logger.fine(() -> "Waiting " + buildersExecutor.getQueue().size() + " code insights report builders");
+        if (!buildersExecutor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+            // still in the outbox, rebuilt on restart
+            logger.warning(() -> "Discarding " + buildersExecutor.shutdownNow().size() + " code insights report builders not run on shutdown");
         }
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.ExtensionList;
+import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import jenkins.metrics.api.MetricProvider;
+import org.jenkinsci.plugins.variant.OptionalExtension;
+
+/**
+ * Exposes the {@link CodeInsightsMetrics} and the state of the publishing
+ * infrastructure to the Jenkins Metrics plugin as gauges.
+ */
+@OptionalExtension(requirePlugins = "metrics")
+public class CodeInsightsMetricProvider extends MetricProvider {
+    private static final String PREFIX = "bitbucket.codeinsights";
+
+    @NonNull
+    @Override
+    public MetricSet getMetricSet() {
+        Map<String, Metric> metrics = new HashMap<>();
+
+        CodeInsightsPublishingQueue queue = CodeInsightsPublishingQueue.get();
+        gauge(metrics, "queue.depth", queue::getQueueDepth);
+        gauge(metrics, "queue.published", queue::getPublishedCount);
+        gauge(metrics, "queue.failed", queue::getFailedCount);
+        gauge(metrics, "queue.latency.last", queue::getLastDrainLatency);
+        gauge(metrics, "queue.latency.mean", queue::getAverageDrainLatency);
+        BitbucketClientPool pool = BitbucketClientPool.get();
+        gauge(metrics, "clients.size", pool::getSize);
+        gauge(metrics, "clients.hitRate", pool::getHitRate);
+        BitbucketRateLimiter rateLimiter = BitbucketRateLimiter.get();
+        gauge(metrics, "rateLimiter.waiting", rateLimiter::getWaitingCount);
+        gauge(metrics, "rateLimiter.waitTime", rateLimiter::getTotalWaitTime);
+        gauge(metrics, "rateLimiter.availableTokens", rateLimiter::getMinAvailableTokens);
+        counter(metrics, CodeInsightsMetrics.RETRIES);
+
+        // metric sets are collected once, register all the known names
+        for (ReportType reportType : ReportType.values()) {
+            histogram(metrics, CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.PUT_LATENCY));
+            histogram(metrics, CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.PAYLOAD_SIZE));
+            histogram(metrics, CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.ANNOTATIONS));
+            counter(metrics, CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.FAILURES));
+            counter(metrics, CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.SKIPPED));
+            counter(metrics, CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.RETRIES));
+        }
+        for (CodeInsightsReporBuilder builder : ExtensionList.lookup(CodeInsightsReporBuilder.class)) {
+            histogram(metrics, CodeInsightsMetrics.builderMetric(builder, CodeInsightsMetrics.BUILD_TIME));
+            histogram(metrics, CodeInsightsMetrics.builderMetric(builder, CodeInsightsMetrics.BUILD_TIME_IN_PROGRESS));
+            counter(metrics, CodeInsightsMetrics.builderMetric(builder, CodeInsightsMetrics.FAILURES));
+            counter(metrics, CodeInsightsMetrics.builderMetric(builder, CodeInsightsMetrics.TIMEOUTS));
+        }
+        return () -> metrics;
+    }
+
+    private void gauge(Map<String, Metric> metrics, String name, Supplier<?> value) {
+        metrics.put(MetricRegistry.name(PREFIX, name), (Gauge<Object>) value::get);
+    }
+
+    private void counter(Map<String, Metric> metrics, String name) {
+        gauge(metrics, name, () -> CodeInsightsMetrics.get().counter(name).getCount());
+    }
+
+    private void histogram(Map<String, Metric> metrics, String name) {
+        gauge(metrics, name + ".count", () -> CodeInsightsMetrics.get().histogram(name).getCount());
+        gauge(metrics, name + ".mean", () -> CodeInsightsMetrics.get().histogram(name).getMean());
+        gauge(metrics, name + ".p95", () -> CodeInsightsMetrics.get().histogram(name).getPercentile(0.95));
+        gauge(metrics, name + ".max", () -> CodeInsightsMetrics.get().histogram(name).getMax());
+    }
+}
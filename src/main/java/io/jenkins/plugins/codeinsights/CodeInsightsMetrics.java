@@ -0,0 +1,204 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jenkins.util.SystemProperties;
+
+/**
+ * Plugin local registry of counters and histograms about report building and
+ * publishing.
+ * <p>
+ * Metrics are created on first use and are exposed to the Jenkins Metrics
+ * plugin, when installed, by {@link CodeInsightsMetricProvider}. Without the
+ * Metrics plugin the registry is still updated but it is not exposed
+ * anywhere: the per run timings of {@link CodeInsightsTimingAction} and the
+ * logs are the only diagnostics available.
+ */
+@Extension
+public class CodeInsightsMetrics {
+    private static final long HISTOGRAM_WINDOW = TimeUnit.MINUTES.toNanos(SystemProperties.getLong(CodeInsightsMetrics.class.getName() + ".histogramWindow", 5L));
+
+    /**
+     * A monotonic counter.
+     */
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        public void inc() {
+            count.increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * A histogram of non negative values with buckets of power of two bounds,
+     * percentiles are approximated to the upper bound of the bucket.
+     * <p>
+     * Values are recorded in time windows of {@code histogramWindow} minutes,
+     * statistics cover the current and the previous window only, so they
+     * reflect recent behaviour instead of accumulating since startup. Updates
+     * are lock free except for the rotation of the window.
+     */
+    public static final class Histogram {
+        private static final class Window {
+            private final long start;
+            private final LongAdder count = new LongAdder();
+            private final LongAdder sum = new LongAdder();
+            private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+            private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+            private Window(long start) {
+                this.start = start;
+            }
+        }
+
+        private volatile Window current = new Window(System.nanoTime());
+        private volatile Window previous = new Window(current.start);
+
+        private Window rotate() {
+            long now = System.nanoTime();
+            Window window = current;
+            if (now - window.start >= HISTOGRAM_WINDOW) {
+                synchronized (this) {
+                    window = current;
+                    if (now - window.start >= HISTOGRAM_WINDOW) {
+                        // a window older than one period has nothing recent
+                        previous = now - window.start >= 2 * HISTOGRAM_WINDOW ? new Window(now) : window;
+                        window = new Window(now);
+                        current = window;
+                    }
+                }
+            }
+            return window;
+        }
+
+        public void update(long value) {
+            long v = Math.max(0, value);
+            Window window = rotate();
+            window.count.increment();
+            window.sum.add(v);
+            window.max.accumulate(v);
+            window.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+        }
+
+        public long getCount() {
+            Window window = rotate();
+            return window.count.sum() + previous.count.sum();
+        }
+
+        public double getMean() {
+            Window window = rotate();
+            Window last = previous;
+            long c = window.count.sum() + last.count.sum();
+            return c == 0 ? 0 : (double) (window.sum.sum() + last.sum.sum()) / c;
+        }
+
+        public long getMax() {
+            Window window = rotate();
+            return Math.max(window.max.get(), previous.max.get());
+        }
+
+        public long getPercentile(double quantile) {
+            Window window = rotate();
+            Window last = previous;
+            long c = window.count.sum() + last.count.sum();
+            if (c == 0) {
+                return 0;
+            }
+            long max = Math.max(window.max.get(), last.max.get());
+            long rank = (long) Math.ceil(quantile * c);
+            long seen = 0;
+            for (int i = 0; i < window.buckets.length(); i++) {
+                seen += window.buckets.get(i) + last.buckets.get(i);
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+                }
+            }
+            return max;
+        }
+    }
+
+    static final String PUT_LATENCY = "put.latency";
+    static final String PAYLOAD_SIZE = "payload.size";
+    static final String ANNOTATIONS = "annotations";
+    static final String FAILURES = "failures";
+    static final String SKIPPED = "skipped";
+    static final String BUILD_TIME = "build.time";
+    static final String BUILD_TIME_IN_PROGRESS = "build.time.inProgress";
+    static final String TIMEOUTS = "timeouts";
+    static final String RETRIES = "retries";
+
+    /**
+     * Returns the name of a metric about the publishing of a type of report.
+     *
+     * @param reportType the type of report
+     * @param metric the metric name
+     * @return the full metric name
+     */
+    public static String reportMetric(ReportType reportType, String metric) {
+        return "report." + String.valueOf(reportType).toLowerCase(Locale.ENGLISH) + "." + metric;
+    }
+
+    /**
+     * Returns the name of a metric about a report builder.
+     *
+     * @param builder the report builder
+     * @param metric the metric name
+     * @return the full metric name
+     */
+    public static String builderMetric(CodeInsightsReporBuilder builder, String metric) {
+        return "builder." + builder.getClass().getSimpleName() + "." + metric;
+    }
+
+    public static CodeInsightsMetrics get() {
+        return ExtensionList.lookupSingleton(CodeInsightsMetrics.class);
+    }
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    public Map<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    public Map<String, Histogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+}
@@ -19,20 +19,83 @@ package io.jenkins.plugins.codeinsights;
 import com.cloudbees.jenkins.plugins.bitbucket.BitbucketSCMSource;
 import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketApi;
 import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketAuthenticatedClient;
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketRequestException;
 import com.damnhandy.uri.template.UriTemplate;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
 import io.jenkins.plugins.codeinsights.api.dto.Report;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
 
 public class CodeInsightsPublisher implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(CodeInsightsPublisher.class.getName());
+
+    /**
+     * Maximum number of annotations accepted by the bulk annotations endpoint.
+     */
+    static final int ANNOTATIONS_CHUNK_SIZE = 100;
+    private static final int ANNOTATIONS_PARALLELISM = SystemProperties.getInteger(CodeInsightsPublisher.class.getName() + ".annotationsParallelism", 4);
+    private static final boolean DELETE_LEGACY_REPORTS = SystemProperties.getBoolean(CodeInsightsPublisher.class.getName() + ".deleteLegacyReports", true);
+    private static final int MAX_ANNOTATIONS = SystemProperties.getInteger(CodeInsightsPublisher.class.getName() + ".maxAnnotations", 1000);
+    private static final int STALE_ANNOTATIONS_THRESHOLD = SystemProperties.getInteger(CodeInsightsPublisher.class.getName() + ".staleAnnotationsThreshold", 1);
+    private static final OutsideDiff OUTSIDE_DIFF = OutsideDiff.of(SystemProperties.getString(CodeInsightsPublisher.class.getName() + ".outsideDiff"));
+    private static final ExecutorService annotationsExecutor = Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), "CodeInsightsAnnotations"));
+
+    /**
+     * What to do with annotations on lines not shown in the pull request
+     * diff.
+     */
+    enum OutsideDiff {
+        DROP, DOWNRANK, KEEP;
+
+        static OutsideDiff of(String value) {
+            for (OutsideDiff mode : values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            return DROP;
+        }
+    }
+
+    /*
+     * The ids of the annotations of a chunk and the annotations to send.
+     */
+    private record Chunk(List<String> ids, List<Annotation> annotations) {
+    }
+
     private CodeInsightsContext context;
+    private BitbucketClientPool.Lease lease;
     private BitbucketApi bbClient;
 
     public CodeInsightsPublisher(final CodeInsightsContext context) {
         this.context = context;
         BitbucketSCMSource scmSource = context.resolveSource();
         if (scmSource != null) {
-            bbClient = scmSource.buildBitbucketClient();
+            lease = BitbucketClientPool.get().acquire(scmSource);
+            bbClient = lease.getClient();
         }
     }
 
@@ -42,30 +105,370 @@ public class CodeInsightsPublisher implements AutoCloseable {
      * @param report to publish
      * @throws IOException when occur error during publishing.
      */
-    @SuppressFBWarnings("RV_ABSOLUTE_VALUE_OF_HASHCODE")
     public void publish(Report report) throws IOException {
+        publish(report, report.getAnnotations());
+    }
+
+    /**
+     * Publish the given Code Insights report to Bitbucket Cloud together with
+     * the given annotations. A report without an external id gets one computed
+     * from the job and the report type, see {@link ReportIds}. The report
+     * published for the same commit under the id used by previous versions is
+     * deleted.
+     * <p>
+     * Annotations are pulled once from the iterable in chunks, at most
+     * {@code maxAnnotations} (the Bitbucket limit per report) are retained.
+     * The content digest is computed streaming the JSON of the chunks, a
+     * report already published with the same content for the same commit is
+     * skipped. All the annotations are uploaded on every update, because
+     * putting the report again could clear those already sent. Annotations
+     * of previous updates no more produced are deleted, when they are more
+     * than {@code staleAnnotationsThreshold} the whole report is deleted and
+     * put again instead.
+     *
+     * @param report to publish
+     * @param annotations of the report
+     * @throws IOException when occur error during publishing.
+     */
+    public void publish(Report report, Iterable<Annotation> annotations) throws IOException {
         if (bbClient == null) {
             return;
         }
 
-        String reportId = report.getReportType() + "-" + Math.abs(context.getJob().getUrl().hashCode());
-        report.setExternalId(reportId);
+        if (report.getExternalId() == null) {
+            report.setExternalId(ReportIds.of(context.getJob(), report.getReportType(), null));
+        }
+        String reportId = report.getExternalId();
+        String url = reportURL(reportId);
 
-        String url = UriTemplate.fromTemplate("/2.0/repositories/{workspace}/{repo_slug}/commit/{commit}/reports/{reportId}")
+        CodeInsightsMetrics metrics = CodeInsightsMetrics.get();
+        ReportType reportType = report.getReportType();
+        ReportDigestStore digestStore = ReportDigestStore.get();
+        Run<?, ?> run = context.getRun().orElse(null);
+        ReportDigestStore.Digest contentDigest = digestStore.newDigest(report);
+        List<Chunk> chunks;
+        try (CodeInsightsTimingAction.Span span = CodeInsightsTimingAction.span(run, "Prepare " + reportType)) {
+            chunks = prepareAnnotations(annotations, reportId, contentDigest);
+        }
+        String digest = contentDigest.value();
+        if (digestStore.isPublished(context, reportId, digest)) {
+            metrics.counter(CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.SKIPPED)).inc();
+            logger.fine(() -> "Skip unchanged code insights " + reportId + " for commit " + context.getHeadSha());
+            return;
+        }
+
+        AnnotationDeltaStore deltaStore = AnnotationDeltaStore.get();
+        String deltaKey = context.getHeadSha() + "/" + reportId;
+        Set<String> current = new HashSet<>();
+        chunks.forEach(chunk -> current.addAll(chunk.ids()));
+        Set<String> stale = deltaStore.stale(deltaKey, current);
+        // recreating the report costs a request regardless of how many annotations are stale
+        boolean recreate = stale.size() > STALE_ANNOTATIONS_THRESHOLD;
+
+        try {
+            BitbucketAuthenticatedClient authClient = bbClient.adapt(BitbucketAuthenticatedClient.class);
+            if (recreate) {
+                deleteReport(authClient, reportType, reportId);
+            }
+            metrics.histogram(CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.PAYLOAD_SIZE)).update(CodeInsightsJson.size(report));
+            long start = System.nanoTime();
+            try (CodeInsightsTimingAction.Span span = CodeInsightsTimingAction.span(run, "PUT " + reportType)) {
+                send(reportType, () -> authClient.put(url, report));
+            }
+            metrics.histogram(CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.PUT_LATENCY)).update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            int published;
+            try (CodeInsightsTimingAction.Span span = CodeInsightsTimingAction.span(run, "Annotations " + reportType)) {
+                published = publishAnnotations(authClient, reportType, url + "/annotations", deltaKey, chunks);
+                if (!recreate) {
+                    for (String staleId : stale) {
+                        deleteAnnotation(authClient, reportType, url + "/annotations", staleId);
+                    }
+                }
+            }
+            deltaStore.retain(deltaKey, current);
+            metrics.histogram(CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.ANNOTATIONS)).update(published);
+
+            if (DELETE_LEGACY_REPORTS && mayHaveLegacyReport(reportId)) {
+                deleteLegacyReport(authClient, reportType, legacyReportId(report, context.getJob().getUrl()));
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.counter(CodeInsightsMetrics.reportMetric(reportType, CodeInsightsMetrics.FAILURES)).inc();
+            throw e;
+        }
+        digestStore.record(context, reportId, digest);
+    }
+
+    /*
+     * Pulls the annotations once, assigning their ids and filtering those
+     * outside the pull request diff, and splits them in chunks that are added
+     * to the digest. The chunks are serialized again only by the client.
+     */
+    private List<Chunk> prepareAnnotations(Iterable<Annotation> annotations, String reportId, ReportDigestStore.Digest digest) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        if (annotations == null) {
+            return chunks;
+        }
+
+        DiffIndex diff = OUTSIDE_DIFF != OutsideDiff.KEEP ? PullRequestChanges.get().getDiffIndex(context).orElse(null) : null;
+        Map<String, Integer> occurrences = new HashMap<>();
+        Iterator<Annotation> source = annotations.iterator();
+        // filter before chunking so that every chunk is full
+        Iterator<Annotation> iterator = diff != null ? filterOutsideDiff(source, diff, OUTSIDE_DIFF) : source;
+        try {
+            int count = 0;
+            while (iterator.hasNext() && count < MAX_ANNOTATIONS) {
+                List<Annotation> chunk = new ArrayList<>(ANNOTATIONS_CHUNK_SIZE);
+                nextChunk(iterator, chunk, reportId, occurrences);
+                if (count + chunk.size() > MAX_ANNOTATIONS) {
+                    chunk.subList(MAX_ANNOTATIONS - count, chunk.size()).clear();
+                }
+                if (chunk.isEmpty()) {
+                    continue;
+                }
+                digest.update(chunk);
+                chunks.add(new Chunk(chunk.stream().map(Annotation::getExternalId).toList(), chunk));
+                count += chunk.size();
+            }
+            if (iterator.hasNext()) {
+                logger.fine(() -> "Code insights " + reportId + " exceeds " + MAX_ANNOTATIONS + " annotations, the others are not published");
+            }
+        } finally {
+            if (source instanceof AutoCloseable closeable) {
+                closeQuietly(closeable);
+            }
+        }
+        return chunks;
+    }
+
+    /*
+     * Sends the chunks to the bulk endpoint, at most ANNOTATIONS_PARALLELISM
+     * chunks are in flight at the same time. Returns the number of
+     * annotations sent.
+     */
+    private int publishAnnotations(BitbucketAuthenticatedClient authClient, ReportType reportType, String url, String deltaKey, List<Chunk> chunks) throws IOException {
+        AnnotationDeltaStore deltaStore = AnnotationDeltaStore.get();
+        CompletionService<String> completionService = new ExecutorCompletionService<>(annotationsExecutor);
+        int inFlight = 0;
+        int sent = 0;
+        IOException failure = null;
+        for (Iterator<Chunk> iterator = chunks.iterator(); iterator.hasNext() && failure == null;) {
+            Chunk chunk = iterator.next();
+            completionService.submit(() -> {
+                String response = send(reportType, () -> authClient.post(url, chunk.annotations()));
+                deltaStore.record(deltaKey, chunk.ids());
+                return response;
+            });
+            sent += chunk.ids().size();
+            if (++inFlight >= ANNOTATIONS_PARALLELISM) {
+                failure = awaitChunk(completionService, failure);
+                inFlight--;
+            }
+        }
+        while (inFlight-- > 0) {
+            failure = awaitChunk(completionService, failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return sent;
+    }
+
+    private void deleteAnnotation(BitbucketAuthenticatedClient authClient, ReportType reportType, String url, String annotationId) {
+        String annotationURL = UriTemplate.fromTemplate(url + "/{annotationId}")
+                .set("annotationId", annotationId)
+                .expand();
+        try {
+            send(reportType, () -> authClient.delete(annotationURL));
+        } catch (BitbucketRequestException e) {
+            if (e.getHttpCode() != 404) {
+                logger.log(Level.WARNING, e, () -> "Fail to delete stale code insights annotation " + annotationId + " for commit " + context.getHeadSha());
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e, () -> "Fail to delete stale code insights annotation " + annotationId + " for commit " + context.getHeadSha());
+        }
+    }
+
+    /**
+     * Filters lazily the annotations outside the pull request diff.
+     * <p>
+     * Bitbucket shows line annotations only on lines of the diff, the others
+     * would waste requests. Annotations without a line are listed in the
+     * report and always kept.
+     *
+     * @param annotations to filter
+     * @param diff the lines of the pull request diff
+     * @param mode what to do with annotations outside the diff
+     * @return the annotations to publish
+     */
+    static Iterator<Annotation> filterOutsideDiff(Iterator<Annotation> annotations, DiffIndex diff, OutsideDiff mode) {
+        return new Iterator<>() {
+            private Annotation next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && annotations.hasNext()) {
+                    Annotation annotation = annotations.next();
+                    if (diff.covers(annotation) || mode == OutsideDiff.KEEP) {
+                        next = annotation;
+                    } else if (mode == OutsideDiff.DOWNRANK) {
+                        annotation.setSeverity(AnnotationSeverity.LOW);
+                        next = annotation;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Annotation next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Annotation annotation = next;
+                next = null;
+                return annotation;
+            }
+        };
+    }
+
+    private void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Fail to close annotations source", e);
+        }
+    }
+
+    /**
+     * Fills the given chunk with the next annotations, up to
+     * {@link #ANNOTATIONS_CHUNK_SIZE}, assigning an external id to those that
+     * have not one.
+     * <p>
+     * The assigned id is derived from the annotation location and message, so
+     * that the same finding keeps its id between updates of the report
+     * regardless of its position.
+     *
+     * @param annotations to consume
+     * @param chunk to fill
+     * @param reportId the external id of the report
+     * @param occurrences of the ids assigned so far in the report, to keep
+     *        unique the id of identical annotations
+     */
+    static void nextChunk(Iterator<Annotation> annotations, List<Annotation> chunk, String reportId, Map<String, Integer> occurrences) {
+        while (annotations.hasNext() && chunk.size() < ANNOTATIONS_CHUNK_SIZE) {
+            Annotation annotation = annotations.next();
+            if (annotation.getExternalId() == null) {
+                String id = reportId + "-" + Integer.toHexString(Objects.hash(annotation.getPath(), annotation.getLine(), annotation.getTitle(), annotation.getSummary()));
+                int occurrence = occurrences.merge(id, 1, Integer::sum);
+                annotation.setExternalId(occurrence == 1 ? id : id + "-" + occurrence);
+            }
+            chunk.add(annotation);
+        }
+    }
+
+    private String reportURL(String reportId) {
+        return UriTemplate.fromTemplate("/2.0/repositories/{workspace}/{repo_slug}/commit/{commit}/reports/{reportId}")
                 .set("workspace", context.getOwner())
                 .set("repo_slug", context.getRepository())
                 .set("commit", context.getHeadSha())
-                .set("reportId", report.getExternalId())
+                .set("reportId", reportId)
                 .expand();
+    }
+
+    /**
+     * Computes the external id used by previous versions for the report of
+     * the given job, that could collide between jobs.
+     *
+     * @param report to publish
+     * @param jobURL the URL of the job that built the report
+     * @return the legacy report external id
+     */
+    @SuppressFBWarnings("RV_ABSOLUTE_VALUE_OF_HASHCODE")
+    static String legacyReportId(Report report, String jobURL) {
+        return report.getReportType() + "-" + Math.abs(jobURL.hashCode());
+    }
+
+    /*
+     * A report with the legacy id could exist only if the commit was built
+     * by a previous version, that is by the previous run of the same commit
+     * that did not record the report under the current id. Only the previous
+     * run is inspected, older runs of the same commit are rebuilds that are
+     * not worth a lookup on every publish.
+     */
+    private boolean mayHaveLegacyReport(String reportId) {
+        Run<?, ?> run = context.getRun().orElse(null);
+        BitbucketSCMSource source = context.resolveSource();
+        if (run == null || source == null) {
+            return false;
+        }
+
+        Run<?, ?> previous = run.getPreviousBuild();
+        if (previous == null) {
+            return false;
+        }
+
+        SCMFacade scmFacade = context.getSCMFacade();
+        String commit = context.getHeadSha();
+        boolean sameCommit = scmFacade.findRevision(source, previous)
+                .flatMap(scmFacade::findHash)
+                .filter(commit::equals)
+                .isPresent();
+        if (!sameCommit) {
+            return false;
+        }
+        ReportDigestAction action = previous.getAction(ReportDigestAction.class);
+        return action == null || !commit.equals(action.getCommit()) || action.getDigest(reportId) == null;
+    }
+
+    private void deleteReport(BitbucketAuthenticatedClient authClient, ReportType reportType, String reportId) throws IOException {
+        try {
+            send(reportType, () -> authClient.delete(reportURL(reportId)));
+        } catch (BitbucketRequestException e) {
+            // already deleted
+            if (e.getHttpCode() != 404) {
+                throw e;
+            }
+        }
+    }
 
-        BitbucketAuthenticatedClient authClient = bbClient.adapt(BitbucketAuthenticatedClient.class);
-        authClient.put(url, report);
+    private void deleteLegacyReport(BitbucketAuthenticatedClient authClient, ReportType reportType, String legacyId) {
+        try {
+            send(reportType, () -> authClient.delete(reportURL(legacyId)));
+            logger.fine(() -> "Deleted legacy code insights " + legacyId + " for commit " + context.getHeadSha());
+        } catch (BitbucketRequestException e) {
+            if (e.getHttpCode() != 404) {
+                logger.log(Level.WARNING, e, () -> "Fail to delete legacy code insights " + legacyId + " for commit " + context.getHeadSha());
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e, () -> "Fail to delete legacy code insights " + legacyId + " for commit " + context.getHeadSha());
+        }
+    }
+
+    private <T> T send(ReportType reportType, BitbucketRetryPolicy.Request<T> request) throws IOException {
+        return BitbucketRetryPolicy.get().executeLimited(context.getOwner(), reportType, request);
+    }
+
+    private IOException awaitChunk(CompletionService<String> completionService, IOException failure) throws IOException {
+        try {
+            completionService.take().get();
+            return failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while publishing annotations", e);
+        } catch (ExecutionException e) {
+            if (failure != null) {
+                failure.addSuppressed(e.getCause());
+                return failure;
+            }
+            return e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        }
     }
 
     @Override
     public void close() throws IOException {
-        if (bbClient != null) {
-            bbClient.close();
+        if (lease != null) {
+            // the client is shared, return it to the pool
+            lease.close();
         }
     }
 
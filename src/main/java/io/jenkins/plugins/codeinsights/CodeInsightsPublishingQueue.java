@@ -0,0 +1,315 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.Terminator;
+import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Bounded background queue that publishes reports to Bitbucket Cloud out of
+ * the run completion thread.
+ * <p>
+ * When the queue is full the report is published by the caller thread, this
+ * slows down the producers instead of losing reports.
+ * <p>
+ * Reports with the same external id for the same commit are published one at
+ * a time, and a report is discarded if a newer one with the same id has been
+ * submitted meanwhile. Once a run is marked as completed its in progress
+ * reports are rejected, so the reports of the completed run always have the
+ * newest sequence and an in progress report does not overwrite them.
+ */
+@Extension
+public class CodeInsightsPublishingQueue {
+    private static final Logger logger = Logger.getLogger(CodeInsightsPublishingQueue.class.getName());
+
+    private static final int THREADS = SystemProperties.getInteger(CodeInsightsPublishingQueue.class.getName() + ".threads", 4);
+    private static final int CAPACITY = SystemProperties.getInteger(CodeInsightsPublishingQueue.class.getName() + ".capacity", 1000);
+    private static final long SHUTDOWN_TIMEOUT = SystemProperties.getLong(CodeInsightsPublishingQueue.class.getName() + ".shutdownTimeout", 30L);
+    private static final int MAX_SEQUENCES = 10000;
+    private static final int LOCK_STRIPES = 64;
+
+    public static CodeInsightsPublishingQueue get() {
+        return ExtensionList.lookupSingleton(CodeInsightsPublishingQueue.class);
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalDrainLatency = new AtomicLong();
+    private volatile long lastDrainLatency;
+    private final AtomicLong sequence = new AtomicLong();
+    // the sequence of the last report submitted for each commit and report id
+    private final Map<String, Long> latest = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_SEQUENCES;
+        }
+    };
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // runs are weakly referenced, entries go away with the run
+    private final Set<Run<?, ?>> completed = Collections.newSetFromMap(new WeakHashMap<>());
+
+    public CodeInsightsPublishingQueue() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(CAPACITY),
+                new NamingThreadFactory(new DaemonThreadFactory(), "CodeInsightsPublisher"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Enqueue the given report to be published on Bitbucket Cloud. The given
+     * context must be already validated and the report must not be modified
+     * after this call.
+     *
+     * @param context of the run that produced the report
+     * @param report to publish
+     */
+    public void submit(CodeInsightsContext context, Report report) {
+        submit(context, report, report.getAnnotations());
+    }
+
+    /**
+     * Enqueue the given report to be published on Bitbucket Cloud with the
+     * given annotations. The annotations are iterated only when the report is
+     * published.
+     *
+     * @param context of the run that produced the report
+     * @param report to publish
+     * @param annotations of the report
+     */
+    public void submit(CodeInsightsContext context, Report report, Iterable<Annotation> annotations) {
+        execute(context, report, annotations, -1, null, false);
+    }
+
+    /**
+     * Enqueue an in progress report of the run of the given context, unless
+     * the run has been already marked as completed.
+     *
+     * @param context of the run that produced the report
+     * @param report to publish
+     * @param annotations of the report
+     * @return {@code false} if the report has been rejected because the run
+     *         is completed
+     */
+    public boolean submitInProgress(CodeInsightsContext context, Report report, Iterable<Annotation> annotations) {
+        return execute(context, report, annotations, -1, null, true);
+    }
+
+    /**
+     * Runs a background task related to the publishing, like the collection
+     * of stale reports, on the bounded executor of the publishers.
+     *
+     * @param task to run
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Marks the given run as completed, in progress reports of the run
+     * submitted after this call are rejected.
+     *
+     * @param run that is completed
+     */
+    public void complete(Run<?, ?> run) {
+        synchronized (latest) {
+            completed.add(run);
+        }
+    }
+
+    /**
+     * Enqueue the report built by the given builder to be published on
+     * Bitbucket Cloud. The report is recorded in the {@link ReportOutbox} so
+     * that it will be rebuilt and published on restart if not published
+     * before.
+     *
+     * @param context of the run that produced the report
+     * @param builder that built the report
+     * @param report to publish
+     */
+    public void submit(CodeInsightsContext context, CodeInsightsReporBuilder builder, Report report) {
+        Run<?, ?> run = context.getRun().orElseThrow(() -> new IllegalArgumentException("Context without a run"));
+        submit(context, builder, report, ReportOutbox.get().add(run, builder, 1));
+    }
+
+    /*
+     * The outbox entry has been already recorded before the report was built.
+     */
+    void submit(CodeInsightsContext context, CodeInsightsReporBuilder builder, Report report, long outboxId) {
+        Run<?, ?> run = context.getRun().orElseThrow(() -> new IllegalArgumentException("Context without a run"));
+        if (report.getExternalId() == null) {
+            report.setExternalId(ReportIds.of(run.getParent(), report.getReportType(), builder.getClass().getName()));
+        }
+        ReportGarbageCollector collector = ReportGarbageCollector.get();
+        collector.produced(run, report.getExternalId());
+        collector.pending(run);
+        execute(context, report, builder.annotations(run, context, report), outboxId, run, false);
+    }
+
+    /*
+     * The tracked run, if any, is notified to the garbage collector once the
+     * report has been published. The completion check and the sequence are
+     * taken atomically, so an in progress report accepted before completion
+     * has a lower sequence than any report of the completed run.
+     */
+    private boolean execute(CodeInsightsContext context, Report report, Iterable<Annotation> annotations, long outboxId,
+                            @CheckForNull Run<?, ?> tracked, boolean inProgress) {
+        long enqueuedAt = System.nanoTime();
+        String key = orderKey(context, report);
+        long seq;
+        synchronized (latest) {
+            if (inProgress && context.getRun().filter(completed::contains).isPresent()) {
+                return false;
+            }
+            seq = sequence.incrementAndGet();
+            if (key != null) {
+                latest.put(key, seq);
+            }
+        }
+        executor.execute(() -> publish(context, report, annotations, outboxId, enqueuedAt, tracked, key, seq));
+        return true;
+    }
+
+    private static String orderKey(CodeInsightsContext context, Report report) {
+        return report.getExternalId() != null ? context.getHeadSha() + "/" + report.getExternalId() : null;
+    }
+
+    private boolean isSuperseded(String key, long seq) {
+        synchronized (latest) {
+            Long last = latest.get(key);
+            return last != null && last > seq;
+        }
+    }
+
+    private void publish(CodeInsightsContext context, Report report, Iterable<Annotation> annotations, long outboxId, long enqueuedAt,
+                         @CheckForNull Run<?, ?> tracked, @CheckForNull String key, long seq) {
+        CodeInsightsTimingAction.record(context.getRun().orElse(null), "Queue " + report.getReportType(), enqueuedAt);
+        Object lock = key != null ? locks[Math.floorMod(key.hashCode(), locks.length)] : new Object();
+        try (CodeInsightsPublisher publisher = new CodeInsightsPublisher(context)) {
+            synchronized (lock) {
+                if (key != null && isSuperseded(key, seq)) {
+                    logger.fine(() -> "Skip code insights " + key + " superseded by a newer report");
+                } else {
+                    publisher.publish(report, annotations);
+                    published.incrementAndGet();
+                }
+            }
+            ReportOutbox.get().ack(outboxId);
+        } catch (IOException | RuntimeException e) {
+            // the report stay in the outbox to be replayed on restart
+            ReportOutbox.get().fail(outboxId);
+            failed.incrementAndGet();
+            logger.log(Level.SEVERE, e, () -> "Fail to publish code insights " + report.getReportType() + " for " + context.getJob().getFullName());
+        } finally {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt);
+            lastDrainLatency = latency;
+            totalDrainLatency.addAndGet(latency);
+            if (tracked != null) {
+                ReportGarbageCollector.get().done(tracked);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of reports waiting to be published.
+     *
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of reports successfully published.
+     *
+     * @return the published reports count
+     */
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * Returns the number of reports failed to publish.
+     *
+     * @return the failed reports count
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the time in milliseconds elapsed between enqueue and publish of
+     * the last report.
+     *
+     * @return the last drain latency in milliseconds
+     */
+    public long getLastDrainLatency() {
+        return lastDrainLatency;
+    }
+
+    /**
+     * Returns the average time in milliseconds elapsed between enqueue and
+     * publish of a report.
+     *
+     * @return the average drain latency in milliseconds
+     */
+    public long getAverageDrainLatency() {
+        long count = published.get() + failed.get();
+        return count == 0 ? 0 : totalDrainLatency.get() / count;
+    }
+
+    @Terminator(requires = CodeInsightsListener.BUILDERS_STOPPED)
+    public static void shutdown() throws InterruptedException {
+        CodeInsightsPublishingQueue queue = ExtensionList.lookup(CodeInsightsPublishingQueue.class).get(CodeInsightsPublishingQueue.class);
+        if (queue == null) {
+            return;
+        }
+
+        queue.executor.shutdown();
+        logger.fine(() -> "Draining " + queue.getQueueDepth() + " code insights reports");
+        if (!queue.executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+            logger.warning(() -> "Discarding " + queue.executor.shutdownNow().size() + " code insights reports not published on shutdown");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import hudson.Extension;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.actions.ThreadNameAction;
+import org.jenkinsci.plugins.workflow.flow.GraphListener;
+import org.jenkinsci.plugins.workflow.graph.BlockEndNode;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+
+/**
+ * Publishes the reports of a pipeline in progress each time a stage ends, so
+ * that findings (like test failures) are visible on the pull request before
+ * the build completes.
+ * <p>
+ * Updates of the same run are throttled to one every {@code minInterval}
+ * seconds, the final reports are always published when the run completes and
+ * in progress updates are rejected from then on.
+ * <p>
+ * Each update puts the whole report and all its annotations again, it is not
+ * a delta of the previous update: Bitbucket does not document that putting a
+ * report again keeps its annotations, so sending only the changed ones could
+ * leave the report without annotations. The {@link AnnotationDeltaStore} is
+ * used only to delete the annotations that are no more produced.
+ */
+@Extension
+public class CodeInsightsStageListener implements GraphListener {
+    private static final Logger logger = Logger.getLogger(CodeInsightsStageListener.class.getName());
+
+    private static final boolean ENABLED = SystemProperties.getBoolean(CodeInsightsStageListener.class.getName() + ".enabled", true);
+    private static final long MIN_INTERVAL = SystemProperties.getLong(CodeInsightsStageListener.class.getName() + ".minInterval", 30L);
+
+    // runs are weakly referenced, entries go away with the run
+    private final Map<Run<?, ?>, Long> lastPublished = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Override
+    public void onNewHead(FlowNode node) {
+        if (!ENABLED || !isStageEnd(node)) {
+            return;
+        }
+
+        Run<?, ?> run;
+        try {
+            Queue.Executable executable = node.getExecution().getOwner().getExecutable();
+            if (!(executable instanceof Run<?, ?> r)) {
+                return;
+            }
+            run = r;
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Fail to find the run of the flow node " + node.getId(), e);
+            return;
+        }
+
+        long now = System.nanoTime();
+        synchronized (lastPublished) {
+            Long last = lastPublished.get(run);
+            if (last != null && now - last < TimeUnit.SECONDS.toNanos(MIN_INTERVAL)) {
+                return;
+            }
+            lastPublished.put(run, now);
+        }
+        // do not hold the pipeline thread
+        Timer.get().submit(() -> CodeInsightsListener.get().publish(run, TaskListener.NULL, true));
+    }
+
+    /*
+     * A stage body is a block whose start node has a label, parallel branches
+     * are labelled too but they are not stages.
+     */
+    private boolean isStageEnd(FlowNode node) {
+        if (node instanceof BlockEndNode<?> end) {
+            BlockStartNode start = end.getStartNode();
+            return start.getPersistentAction(LabelAction.class) != null
+                    && start.getPersistentAction(ThreadNameAction.class) == null;
+        }
+        return false;
+    }
+}
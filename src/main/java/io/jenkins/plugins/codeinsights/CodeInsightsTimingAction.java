@@ -0,0 +1,194 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.TransientActionFactory;
+import jenkins.util.SystemProperties;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Records how long each phase of the Code Insights publishing took for a run,
+ * from the resolution of the SCM source and commit to the HTTP requests.
+ * <p>
+ * Phases are shown in the build summary and exported by the REST API. Timing
+ * costs a clock read and a list append per phase, it can be disabled with the
+ * {@code enabled} system property. Only the last {@code maxPhases} phases are
+ * kept.
+ * <p>
+ * Timings are recorded only for runs that publish to Bitbucket Cloud and are
+ * kept in memory, they are not saved with the run and are lost on restart or
+ * when the run is unloaded.
+ */
+@ExportedBean
+public class CodeInsightsTimingAction extends InvisibleAction {
+    private static final boolean ENABLED = SystemProperties.getBoolean(CodeInsightsTimingAction.class.getName() + ".enabled", true);
+    private static final int MAX_PHASES = SystemProperties.getInteger(CodeInsightsTimingAction.class.getName() + ".maxPhases", 200);
+    private static final Span NOOP = () -> {};
+
+    // runs are weakly referenced, entries go away with the run
+    private static final Map<Run<?, ?>, CodeInsightsTimingAction> actions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * A phase in progress, the phase is recorded when closed.
+     */
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Phase {
+        private final String name;
+        private final long start;
+        private final long duration;
+
+        public Phase(String name, long start, long duration) {
+            this.name = name;
+            this.start = start;
+            this.duration = duration;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns when the phase started.
+         *
+         * @return the start time in milliseconds since epoch
+         */
+        @Exported
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns how long the phase took.
+         *
+         * @return the duration in microseconds
+         */
+        @Exported
+        public long getDuration() {
+            return duration;
+        }
+    }
+
+    private final Deque<Phase> phases = new ArrayDeque<>();
+
+    /**
+     * Starts a phase of the given run.
+     *
+     * @param run to time, could be {@code null} when there is no run
+     * @param name of the phase
+     * @return the span to close when the phase ends
+     */
+    public static Span span(@CheckForNull Run<?, ?> run, String name) {
+        if (!ENABLED || run == null) {
+            return NOOP;
+        }
+        long start = System.nanoTime();
+        return () -> record(run, name, start);
+    }
+
+    /**
+     * Records a phase of the given run started at the given time and ended
+     * now.
+     *
+     * @param run to time, could be {@code null} when there is no run
+     * @param name of the phase
+     * @param startNanos the {@link System#nanoTime()} when the phase started
+     */
+    public static void record(@CheckForNull Run<?, ?> run, String name, long startNanos) {
+        if (!ENABLED || run == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        long start = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(elapsed);
+        record(run, new Phase(name, start, TimeUnit.NANOSECONDS.toMicros(elapsed)));
+    }
+
+    /**
+     * Records a phase already timed of the given run.
+     *
+     * @param run to time, could be {@code null} when there is no run
+     * @param phase to record
+     */
+    static void record(@CheckForNull Run<?, ?> run, Phase phase) {
+        if (!ENABLED || run == null) {
+            return;
+        }
+        actions.computeIfAbsent(run, r -> new CodeInsightsTimingAction()).add(phase);
+    }
+
+    private synchronized void add(Phase phase) {
+        phases.addLast(phase);
+        if (phases.size() > MAX_PHASES) {
+            phases.removeFirst();
+        }
+    }
+
+    /**
+     * Returns the recorded phases ordered by start time.
+     *
+     * @return the recorded phases
+     */
+    @Exported
+    public synchronized List<Phase> getPhases() {
+        List<Phase> result = new ArrayList<>(phases);
+        result.sort(Comparator.comparingLong(Phase::getStart));
+        return result;
+    }
+
+    /**
+     * Contributes the timings recorded in memory to the run.
+     */
+    @Extension
+    @SuppressWarnings("rawtypes")
+    public static class Factory extends TransientActionFactory<Run> {
+
+        @Override
+        public Class<Run> type() {
+            return Run.class;
+        }
+
+        @NonNull
+        @Override
+        public Collection<? extends Action> createFor(@NonNull Run target) {
+            CodeInsightsTimingAction action = actions.get(target);
+            return action != null ? Set.of(action) : Set.of();
+        }
+    }
+}
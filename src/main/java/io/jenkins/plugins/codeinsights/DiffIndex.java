@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the lines changed by a diff, for each file the ranges of lines
+ * of the new side of the hunks are kept in a sorted array of bounds, so that
+ * a lookup is a binary search.
+ */
+public final class DiffIndex {
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+    private static final String NEW_FILE = "+++ ";
+    private static final String DEV_NULL = "/dev/null";
+
+    // file path to [start0, end0, start1, end1, ...], inclusive bounds
+    private final Map<String, int[]> ranges;
+
+    private DiffIndex(Map<String, int[]> ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Parses a unified diff.
+     *
+     * @param diff the diff in the git unified format
+     * @return the index of the changed lines
+     * @throws IOException if fails to read the diff
+     */
+    public static DiffIndex parse(Reader diff) throws IOException {
+        Map<String, int[]> ranges = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        BufferedReader reader = new BufferedReader(diff);
+        String path = null;
+        String previous = null;
+        String line;
+        for (; (line = reader.readLine()) != null; previous = line) {
+            // the new file header follows the old file one
+            if (line.startsWith(NEW_FILE) && previous != null && previous.startsWith("--- ")) {
+                String target = line.substring(NEW_FILE.length()).trim();
+                // removed files have not lines to annotate
+                path = DEV_NULL.equals(target) ? null : (target.startsWith("b/") ? target.substring(2) : target);
+            } else if (path != null && line.startsWith("@@")) {
+                Matcher matcher = HUNK.matcher(line);
+                if (matcher.find()) {
+                    int start = Integer.parseInt(matcher.group(1));
+                    int count = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 1;
+                    if (count > 0) {
+                        int size = sizes.getOrDefault(path, 0);
+                        int[] bounds = ranges.computeIfAbsent(path, k -> new int[4]);
+                        if (size + 2 > bounds.length) {
+                            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                            ranges.put(path, bounds);
+                        }
+                        bounds[size] = start;
+                        bounds[size + 1] = start + count - 1;
+                        sizes.put(path, size + 2);
+                    }
+                }
+            }
+        }
+        // hunks are in line order, only trim the arrays
+        ranges.replaceAll((file, bounds) -> Arrays.copyOf(bounds, sizes.get(file)));
+        return new DiffIndex(ranges);
+    }
+
+    /**
+     * Returns if the given file has changed lines.
+     *
+     * @param path the file path relative to the repository root
+     * @return {@code true} if the file is in the diff
+     */
+    public boolean containsFile(String path) {
+        return ranges.containsKey(path);
+    }
+
+    /**
+     * Returns if the given line of the given file is in a hunk of the diff.
+     *
+     * @param path the file path relative to the repository root
+     * @param line the line number in the new version of the file
+     * @return {@code true} if the line is shown in the diff
+     */
+    public boolean contains(String path, int line) {
+        int[] bounds = ranges.get(path);
+        if (bounds == null) {
+            return false;
+        }
+        // find the last range that starts before the line
+        int low = 0;
+        int high = bounds.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[mid * 2] <= line) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && line <= bounds[high * 2 + 1];
+    }
+
+    /**
+     * Returns if the given annotation is shown in the diff. Annotations not
+     * bound to a line are shown in the report regardless of the diff.
+     *
+     * @param annotation to check
+     * @return {@code true} if the annotation is shown in the diff
+     */
+    public boolean covers(Annotation annotation) {
+        String path = annotation.getPath();
+        if (path == null || annotation.getLine() <= 0) {
+            return true;
+        }
+        return contains(path, annotation.getLine());
+    }
+
+    public int getFileCount() {
+        return ranges.size();
+    }
+}
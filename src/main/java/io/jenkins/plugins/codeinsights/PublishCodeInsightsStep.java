@@ -0,0 +1,221 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import io.jenkins.plugins.codeinsights.impl.SarifParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import jenkins.util.SystemProperties;
+import org.jenkinsci.Symbol;
+import org.jenkinsci.plugins.displayurlapi.DisplayURLProvider;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Publishes a Code Insights report read from files of the workspace, for
+ * example {@code publishCodeInsights report: 'report.json', annotations: 'findings.json'}.
+ * <p>
+ * The report file contains a report in the Bitbucket format, the annotations
+ * file a JSON array of annotations or a SARIF log ({@code .sarif} extension).
+ * Files are streamed from the agent and parsed while published, annotations
+ * are never read wholly in the controller memory.
+ */
+public class PublishCodeInsightsStep extends Step {
+    private static final String FUNCTION_NAME = "publishCodeInsights";
+    private static final int MAX_SARIF_ANNOTATIONS = SystemProperties.getInteger(PublishCodeInsightsStep.class.getName() + ".maxSarifAnnotations", 1000);
+
+    private final String report;
+    private String annotations;
+    private String id;
+
+    @DataBoundConstructor
+    public PublishCodeInsightsStep(String report) {
+        this.report = report;
+    }
+
+    public String getReport() {
+        return report;
+    }
+
+    public String getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Sets the workspace relative path of the annotations file.
+     *
+     * @param annotations the annotations file
+     */
+    @DataBoundSetter
+    public void setAnnotations(String annotations) {
+        this.annotations = Util.fixEmptyAndTrim(annotations);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets an identifier of the report, to publish more reports of the same
+     * type from the same job. The report external id is derived from it.
+     *
+     * @param id the report external id
+     */
+    @DataBoundSetter
+    public void setId(String id) {
+        this.id = Util.fixEmptyAndTrim(id);
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(this, context);
+    }
+
+    private static class Execution extends SynchronousNonBlockingStepExecution<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient PublishCodeInsightsStep step;
+
+        Execution(PublishCodeInsightsStep step, StepContext context) {
+            super(context);
+            this.step = step;
+        }
+
+        @Override
+        protected Void run() throws Exception {
+            FilePath workspace = getContext().get(FilePath.class);
+            Run<?, ?> run = getContext().get(Run.class);
+            TaskListener listener = getContext().get(TaskListener.class);
+
+            FilePath reportFile = workspace.child(step.getReport());
+            if (!reportFile.exists()) {
+                throw new AbortException("Code insights report " + reportFile.getRemote() + " does not exist");
+            }
+            Report report;
+            try (InputStream in = reportFile.read()) {
+                report = CodeInsightsJson.readReport(in);
+            }
+            if (step.getId() != null || report.getExternalId() == null) {
+                String builderId = step.getId() != null ? FUNCTION_NAME + ":" + step.getId() : FUNCTION_NAME;
+                report.setExternalId(ReportIds.of(run.getParent(), report.getReportType(), builderId));
+            }
+
+            Iterable<Annotation> annotations = report.getAnnotations();
+            if (step.getAnnotations() != null) {
+                FilePath annotationsFile = workspace.child(step.getAnnotations());
+                if (!annotationsFile.exists()) {
+                    throw new AbortException("Code insights annotations " + annotationsFile.getRemote() + " does not exist");
+                }
+                if (annotationsFile.getName().endsWith(".sarif")) {
+                    annotations = parseSarif(annotationsFile, report);
+                } else {
+                    annotations = new FileAnnotations(annotationsFile);
+                }
+            }
+
+            CodeInsightsContext context = CodeInsightsContext.fromRun(run, DisplayURLProvider.get(), new SCMFacade());
+            if (!context.isValid(listener)) {
+                return null;
+            }
+            // not stale even if this publishing fails
+            ReportGarbageCollector.get().produced(run, report.getExternalId());
+            try (CodeInsightsPublisher publisher = new CodeInsightsPublisher(context)) {
+                publisher.publish(report, annotations);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            listener.getLogger().println("Published code insights report " + report.getExternalId());
+            return null;
+        }
+
+        /*
+         * Findings are counted in the report data, the most severe are kept
+         * as annotations.
+         */
+        private List<Annotation> parseSarif(FilePath file, Report report) throws IOException, InterruptedException {
+            SarifParser parser = new SarifParser(MAX_SARIF_ANNOTATIONS);
+            try (InputStream in = file.read()) {
+                parser.parse(in);
+            }
+            report.getData().addAll(parser.getData());
+            return parser.getAnnotations();
+        }
+    }
+
+    /*
+     * Opens a new stream on the file each time it is iterated, the publisher
+     * iterates once and closes the iterator.
+     */
+    static class FileAnnotations implements Iterable<Annotation> {
+        private final FilePath file;
+
+        FileAnnotations(FilePath file) {
+            this.file = file;
+        }
+
+        @Override
+        public Iterator<Annotation> iterator() {
+            try {
+                return CodeInsightsJson.readAnnotations(file.read());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("Interrupted while reading " + file.getRemote(), e));
+            }
+        }
+    }
+
+    @Extension
+    @Symbol(FUNCTION_NAME)
+    public static class DescriptorImpl extends StepDescriptor {
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(FilePath.class, Run.class, TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return FUNCTION_NAME;
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Publish Bitbucket Code Insights report";
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.cloudbees.jenkins.plugins.bitbucket.BitbucketSCMSource;
+import com.cloudbees.jenkins.plugins.bitbucket.PullRequestSCMHead;
+import com.cloudbees.jenkins.plugins.bitbucket.PullRequestSCMRevision;
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketAuthenticatedClient;
+import com.damnhandy.uri.template.UriTemplate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Run;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.scm.api.SCMHead;
+import jenkins.scm.api.SCMRevision;
+import jenkins.util.SystemProperties;
+
+/**
+ * Provides the files and lines changed by the pull request built by a run,
+ * from the Bitbucket diffstat and diff of the pull request.
+ * <p>
+ * The changes of a pull request at a given commit do not change, they are
+ * cached in bounded in-memory caches so that all builders and reports of a
+ * run fetch them once. The line index is keyed by the pair of head and
+ * target commits.
+ */
+@Extension
+public class PullRequestChanges {
+    private static final Logger logger = Logger.getLogger(PullRequestChanges.class.getName());
+
+    private static final int MAX_ENTRIES = SystemProperties.getInteger(PullRequestChanges.class.getName() + ".maxEntries", 100);
+    private static final int PAGE_LENGTH = 500;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private record Key(String owner, String repository, String pullRequest, String commit) {
+    }
+
+    private record CommitPair(String owner, String repository, String head, String target) {
+    }
+
+    public static PullRequestChanges get() {
+        return ExtensionList.lookupSingleton(PullRequestChanges.class);
+    }
+
+    private final Map<Key, Set<String>> changes = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Set<String>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private final Map<CommitPair, CompletableFuture<DiffIndex>> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CommitPair, CompletableFuture<DiffIndex>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns the paths, relative to the repository root, of the files added
+     * or modified by the pull request built by the run of the given context.
+     *
+     * @param context of the run
+     * @return the changed files or empty if the run does not build a pull
+     *         request or the changes can not be fetched
+     */
+    public Optional<Set<String>> getChangedFiles(CodeInsightsContext context) {
+        Optional<SCMHead> head = context.getSCMFacade().findHead(context.getJob());
+        BitbucketSCMSource source = context.resolveSource();
+        if (source == null || !(head.orElse(null) instanceof PullRequestSCMHead pullRequest)) {
+            return Optional.empty();
+        }
+
+        Key key = new Key(context.getOwner(), context.getRepository(), pullRequest.getId(), context.getHeadSha());
+        synchronized (changes) {
+            Set<String> files = changes.get(key);
+            if (files != null) {
+                return Optional.of(files);
+            }
+        }
+
+        try (BitbucketClientPool.Lease lease = BitbucketClientPool.get().acquire(source)) {
+            BitbucketAuthenticatedClient client = lease.getClient().adapt(BitbucketAuthenticatedClient.class);
+            Set<String> files = Collections.unmodifiableSet(fetchDiffstat(client, key));
+            synchronized (changes) {
+                changes.put(key, files);
+            }
+            return Optional.of(files);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e, () -> "Fail to fetch the changes of pull request " + pullRequest.getId() + " of " + key.owner() + "/" + key.repository());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the index of the lines changed by the pull request built by the
+     * run of the given context. Concurrent requests for the same commits wait
+     * for a single fetch.
+     *
+     * @param context of the run
+     * @return the changed lines or empty if the run does not build a pull
+     *         request or the diff can not be fetched
+     */
+    public Optional<DiffIndex> getDiffIndex(CodeInsightsContext context) {
+        BitbucketSCMSource source = context.resolveSource();
+        Run<?, ?> run = context.getRun().orElse(null);
+        if (source == null || run == null) {
+            return Optional.empty();
+        }
+        SCMFacade scmFacade = context.getSCMFacade();
+        Optional<SCMRevision> revision = scmFacade.findRevision(source, run);
+        if (!(revision.orElse(null) instanceof PullRequestSCMRevision pullRequest)) {
+            return Optional.empty();
+        }
+        String target = scmFacade.findHash(pullRequest.getTarget()).orElse(null);
+        if (target == null) {
+            return Optional.empty();
+        }
+
+        CommitPair key = new CommitPair(context.getOwner(), context.getRepository(), context.getHeadSha(), target);
+        CompletableFuture<DiffIndex> index;
+        boolean fetch = false;
+        synchronized (indexes) {
+            index = indexes.get(key);
+            if (index == null) {
+                index = new CompletableFuture<>();
+                indexes.put(key, index);
+                fetch = true;
+            }
+        }
+        if (fetch) {
+            try (BitbucketClientPool.Lease lease = BitbucketClientPool.get().acquire(source)) {
+                BitbucketAuthenticatedClient client = lease.getClient().adapt(BitbucketAuthenticatedClient.class);
+                index.complete(fetchDiff(client, key));
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, e, () -> "Fail to fetch the diff " + key.head() + ".." + key.target() + " of " + key.owner() + "/" + key.repository());
+                synchronized (indexes) {
+                    indexes.remove(key);
+                }
+                index.complete(null);
+            }
+        }
+        return Optional.ofNullable(index.join());
+    }
+
+    /*
+     * The diff of the head against its merge base with the target, with the
+     * default context lines, is what the pull request shows.
+     */
+    private DiffIndex fetchDiff(BitbucketAuthenticatedClient client, CommitPair key) throws IOException {
+        String url = UriTemplate.fromTemplate("/2.0/repositories/{workspace}/{repo_slug}/diff/{spec}")
+                .set("workspace", key.owner())
+                .set("repo_slug", key.repository())
+                .set("spec", key.head() + ".." + key.target())
+                .expand();
+        // the diff of large pull requests is parsed while read, not buffered
+        return BitbucketRetryPolicy.get().executeLimited(key.owner(), () -> {
+            try (Reader reader = new InputStreamReader(client.getRequestAsInputStream(url), StandardCharsets.UTF_8)) {
+                return DiffIndex.parse(reader);
+            }
+        });
+    }
+
+    private Set<String> fetchDiffstat(BitbucketAuthenticatedClient client, Key key) throws IOException {
+        Set<String> files = new HashSet<>();
+        BitbucketRetryPolicy retryPolicy = BitbucketRetryPolicy.get();
+        boolean hasNext = true;
+        for (int page = 1; hasNext; page++) {
+            String url = UriTemplate.fromTemplate("/2.0/repositories/{workspace}/{repo_slug}/pullrequests/{id}/diffstat{?page,pagelen}")
+                    .set("workspace", key.owner())
+                    .set("repo_slug", key.repository())
+                    .set("id", key.pullRequest())
+                    .set("page", page)
+                    .set("pagelen", PAGE_LENGTH)
+                    .expand();
+            JsonNode response = MAPPER.readTree(retryPolicy.executeLimited(key.owner(), () -> client.get(url)));
+            for (JsonNode change : response.path("values")) {
+                // removed files have not a new path
+                String path = change.path("new").path("path").asText(null);
+                if (path != null) {
+                    files.add(path);
+                }
+            }
+            hasNext = response.hasNonNull("next");
+        }
+        return files;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.model.InvisibleAction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the digest of the reports published for the commit of a run, so that
+ * later runs of the same commit (rebuild, replay) can skip unchanged reports
+ * also after a controller restart.
+ */
+public class ReportDigestAction extends InvisibleAction {
+    private final String commit;
+    private final Map<String, String> digests = new HashMap<>();
+
+    public ReportDigestAction(String commit) {
+        this.commit = commit;
+    }
+
+    public String getCommit() {
+        return commit;
+    }
+
+    @CheckForNull
+    public synchronized String getDigest(String externalId) {
+        return digests.get(externalId);
+    }
+
+    public synchronized void putDigest(String externalId, String digest) {
+        digests.put(externalId, digest);
+    }
+}
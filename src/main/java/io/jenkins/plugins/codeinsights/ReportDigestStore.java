@@ -0,0 +1,199 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Run;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Remembers the digest of the last report published for each commit and
+ * report external id, to skip the publishing of unchanged reports.
+ * <p>
+ * Digests are kept in a bounded in-memory cache and persisted on the run
+ * through a {@link ReportDigestAction}, previous runs are looked up when a
+ * digest is not in memory (for example after a restart).
+ */
+@Extension
+public class ReportDigestStore {
+    private static final Logger logger = Logger.getLogger(ReportDigestStore.class.getName());
+
+    private static final int MAX_ENTRIES = SystemProperties.getInteger(ReportDigestStore.class.getName() + ".maxEntries", 10000);
+    private static final int MAX_PREVIOUS_RUNS = SystemProperties.getInteger(ReportDigestStore.class.getName() + ".maxPreviousRuns", 5);
+    private static final List<String> RUN_SPECIFIC_FIELDS = List.of("uuid", "link", "created_on", "updated_on");
+
+    public static ReportDigestStore get() {
+        return ExtensionList.lookupSingleton(ReportDigestStore.class);
+    }
+
+    private final Map<String, String> digests = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Content digest of a report and its annotations.
+     */
+    public static final class Digest {
+        private final MessageDigest md;
+        private final OutputStream out;
+
+        private Digest(MessageDigest md) {
+            this.md = md;
+            this.out = new DigestOutputStream(OutputStream.nullOutputStream(), md);
+        }
+
+        /**
+         * Adds a chunk of annotations to the digest, the chunk is serialized
+         * directly into the digest.
+         *
+         * @param chunk the annotations
+         * @throws IOException if fails to serialize the chunk
+         */
+        public void update(Object chunk) throws IOException {
+            CodeInsightsJson.write(out, chunk);
+        }
+
+        /**
+         * Completes the digest, no more chunks can be added.
+         *
+         * @return the hex encoded SHA-256 of the content
+         */
+        public String value() {
+            return HexFormat.of().formatHex(md.digest());
+        }
+    }
+
+    /**
+     * Starts the digest of the given report. The fields that change between
+     * runs of the same content, the link to the run and the dates, are not
+     * part of the digest so that a rebuild of the same commit matches.
+     *
+     * @param report to digest
+     * @return the digest to complete with the annotations of the report
+     */
+    public Digest newDigest(Report report) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ObjectNode content = CodeInsightsJson.toTree(report);
+        content.remove(RUN_SPECIFIC_FIELDS);
+        md.update(content.toString().getBytes(StandardCharsets.UTF_8));
+        return new Digest(md);
+    }
+
+    /**
+     * Returns if the given digest is the same of the last published for the
+     * commit and report of the context.
+     *
+     * @param context of the run
+     * @param externalId of the report
+     * @param digest of the report content
+     * @return {@code true} if the report content was already published
+     */
+    public boolean isPublished(CodeInsightsContext context, String externalId, String digest) {
+        String commit = context.getHeadSha();
+        String key = commit + "/" + externalId;
+        String published;
+        synchronized (digests) {
+            published = digests.get(key);
+        }
+        if (published == null) {
+            published = lookupRuns(context.getRun().orElse(null), commit, externalId);
+            if (published != null) {
+                synchronized (digests) {
+                    digests.put(key, published);
+                }
+            }
+        }
+        return Objects.equals(published, digest);
+    }
+
+    /**
+     * Records the digest of a report successfully published.
+     *
+     * @param context of the run
+     * @param externalId of the report
+     * @param digest of the report content
+     */
+    public void record(CodeInsightsContext context, String externalId, String digest) {
+        String commit = context.getHeadSha();
+        synchronized (digests) {
+            digests.put(commit + "/" + externalId, digest);
+        }
+
+        Run<?, ?> run = context.getRun().orElse(null);
+        if (run != null) {
+            ReportDigestAction action;
+            synchronized (run) {
+                action = run.getAction(ReportDigestAction.class);
+                if (action == null || !commit.equals(action.getCommit())) {
+                    action = new ReportDigestAction(commit);
+                    run.addOrReplaceAction(action);
+                }
+            }
+            action.putDigest(externalId, digest);
+            try {
+                run.save();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e, () -> "Fail to save report digests of " + run.getFullDisplayName());
+            }
+        }
+    }
+
+    private String lookupRuns(Run<?, ?> run, String commit, String externalId) {
+        if (run == null) {
+            return null;
+        }
+
+        Run<?, ?> current = run;
+        for (int i = 0; i <= MAX_PREVIOUS_RUNS && current != null; i++, current = current.getPreviousBuild()) {
+            ReportDigestAction action = current.getAction(ReportDigestAction.class);
+            if (action != null && commit.equals(action.getCommit())) {
+                String digest = action.getDigest(externalId);
+                if (digest != null) {
+                    return digest;
+                }
+            }
+        }
+        return null;
+    }
+}
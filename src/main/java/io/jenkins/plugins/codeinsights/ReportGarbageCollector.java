@@ -0,0 +1,216 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import com.cloudbees.jenkins.plugins.bitbucket.BitbucketSCMSource;
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketAuthenticatedClient;
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketRequestException;
+import com.damnhandy.uri.template.UriTemplate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Run;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Deletes from a commit the reports owned by a job that its last run did not
+ * produce, for example because a builder has been removed or the job
+ * configuration changed.
+ * <p>
+ * A job owns the reports whose external id has the job prefix, see
+ * {@link ReportIds}. The collection runs on the executor of the
+ * {@link CodeInsightsPublishingQueue} once all the reports of a completed run
+ * have been published, with a single request listing up to 100 reports of
+ * the commit. Further pages are not fetched, reports beyond the first page
+ * are not collected. It is skipped when a builder of the run failed, because
+ * its report could be only temporarily missing.
+ */
+@Extension
+public class ReportGarbageCollector {
+    private static final Logger logger = Logger.getLogger(ReportGarbageCollector.class.getName());
+
+    private static final boolean ENABLED = SystemProperties.getBoolean(ReportGarbageCollector.class.getName() + ".enabled", true);
+    private static final int PAGE_LENGTH = 100;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /*
+     * The commit of the run is captured, not the context, that references
+     * the run strongly.
+     */
+    private record Commit(BitbucketSCMSource source, String owner, String repository, String sha, String jobPrefix) {
+    }
+
+    private static final class Tracker {
+        private final Commit commit;
+        // the caller of begin holds a unit until all the work is dispatched
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private volatile boolean incomplete;
+
+        private Tracker(Commit commit) {
+            this.commit = commit;
+        }
+    }
+
+    public static ReportGarbageCollector get() {
+        return ExtensionList.lookupSingleton(ReportGarbageCollector.class);
+    }
+
+    // runs are weakly referenced, entries go away with the run
+    private final Map<Run<?, ?>, Tracker> trackers = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<Run<?, ?>, Set<String>> produced = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Starts tracking the publishing of the reports of a completed run, the
+     * caller must call {@link #done(Run)} once all the work is dispatched.
+     *
+     * @param run the completed run
+     * @param context of the run
+     */
+    public void begin(Run<?, ?> run, CodeInsightsContext context) {
+        BitbucketSCMSource source = context.resolveSource();
+        if (ENABLED && source != null) {
+            Commit commit = new Commit(source, context.getOwner(), context.getRepository(), context.getHeadSha(), ReportIds.jobPrefix(context.getJob()));
+            trackers.put(run, new Tracker(commit));
+        }
+    }
+
+    /**
+     * Records a unit of work (a builder or a report to publish) of the run.
+     *
+     * @param run the tracked run
+     */
+    public void pending(Run<?, ?> run) {
+        Tracker tracker = trackers.get(run);
+        if (tracker != null) {
+            tracker.pending.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records that a unit of work of the run is terminated, the collection
+     * starts when all the units are terminated.
+     *
+     * @param run the tracked run
+     */
+    public void done(Run<?, ?> run) {
+        Tracker tracker = trackers.get(run);
+        if (tracker != null && tracker.pending.decrementAndGet() == 0) {
+            trackers.remove(run);
+            Set<String> reports = produced.remove(run);
+            if (!tracker.incomplete) {
+                String name = run.getFullDisplayName();
+                CodeInsightsPublishingQueue.get().execute(() -> collect(name, tracker.commit, reports != null ? reports : Set.of()));
+            }
+        }
+    }
+
+    /**
+     * Records that the run could have not produced all its reports, its
+     * commit will not be collected.
+     *
+     * @param run the tracked run
+     */
+    public void incomplete(Run<?, ?> run) {
+        Tracker tracker = trackers.get(run);
+        if (tracker != null) {
+            tracker.incomplete = true;
+        }
+    }
+
+    /**
+     * Records a report produced by the run, also while in progress.
+     *
+     * @param run the run
+     * @param externalId of the report
+     */
+    public void produced(Run<?, ?> run, String externalId) {
+        produced.computeIfAbsent(run, k -> ConcurrentHashMap.newKeySet()).add(externalId);
+    }
+
+    private void collect(String runName, Commit commit, Set<String> reports) {
+        try (BitbucketClientPool.Lease lease = BitbucketClientPool.get().acquire(commit.source())) {
+            BitbucketAuthenticatedClient client = lease.getClient().adapt(BitbucketAuthenticatedClient.class);
+            List<String> stale = new ArrayList<>();
+            for (String externalId : listReports(client, commit)) {
+                if (externalId.startsWith(commit.jobPrefix()) && !reports.contains(externalId)) {
+                    stale.add(externalId);
+                }
+            }
+            for (String externalId : stale) {
+                delete(client, commit, externalId);
+            }
+            if (!stale.isEmpty()) {
+                logger.fine(() -> "Deleted " + stale.size() + " stale code insights for commit " + commit.sha() + " of " + runName);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, e, () -> "Fail to collect stale code insights for commit " + commit.sha() + " of " + runName);
+        }
+    }
+
+    private List<String> listReports(BitbucketAuthenticatedClient client, Commit commit) throws IOException {
+        String url = UriTemplate.fromTemplate("/2.0/repositories/{workspace}/{repo_slug}/commit/{commit}/reports{?pagelen}")
+                .set("workspace", commit.owner())
+                .set("repo_slug", commit.repository())
+                .set("commit", commit.sha())
+                .set("pagelen", PAGE_LENGTH)
+                .expand();
+        JsonNode response = MAPPER.readTree(BitbucketRetryPolicy.get().executeLimited(commit.owner(), () -> client.get(url)));
+        List<String> reports = new ArrayList<>();
+        for (JsonNode report : response.path("values")) {
+            String externalId = report.path("external_id").asText(null);
+            if (externalId != null) {
+                reports.add(externalId);
+            }
+        }
+        if (response.hasNonNull("next")) {
+            logger.fine(() -> "Commit " + commit.sha() + " has more than " + PAGE_LENGTH + " code insights, only the first page is collected");
+        }
+        return reports;
+    }
+
+    /*
+     * Deleting a report deletes also its annotations.
+     */
+    private void delete(BitbucketAuthenticatedClient client, Commit commit, String externalId) throws IOException {
+        String url = UriTemplate.fromTemplate("/2.0/repositories/{workspace}/{repo_slug}/commit/{commit}/reports/{reportId}")
+                .set("workspace", commit.owner())
+                .set("repo_slug", commit.repository())
+                .set("commit", commit.sha())
+                .set("reportId", externalId)
+                .expand();
+        try {
+            BitbucketRetryPolicy.get().executeLimited(commit.owner(), () -> client.delete(url));
+        } catch (BitbucketRequestException e) {
+            // already deleted
+            if (e.getHttpCode() != 404) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.model.Job;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Generates the external id of the reports published by Jenkins.
+ * <p>
+ * An id is made of a digest of the job full name followed by a digest of the
+ * report type and of the builder that produced the report, for example
+ * {@code jenkins-3f1d0c9a2b7e4d61-9c0e21f7}. Ids are stable across builds and
+ * restarts, reports of different jobs that build the same commit do not
+ * overwrite each other and all the reports of a job share the same prefix.
+ */
+public final class ReportIds {
+    static final String PREFIX = "jenkins-";
+    private static final int JOB_DIGEST_BYTES = 8;
+    private static final int REPORT_DIGEST_BYTES = 4;
+
+    private ReportIds() {
+    }
+
+    /**
+     * Returns the external id of a report.
+     *
+     * @param job the job that built the report
+     * @param reportType the type of the report
+     * @param builderId the identifier of what produced the report, like the
+     *        builder class name
+     * @return the report external id
+     */
+    public static String of(Job<?, ?> job, @CheckForNull ReportType reportType, @CheckForNull String builderId) {
+        return of(job.getFullName(), reportType, builderId);
+    }
+
+    static String of(String jobFullName, @CheckForNull ReportType reportType, @CheckForNull String builderId) {
+        return jobPrefix(jobFullName) + digest(reportType + "\u0000" + (builderId == null ? "" : builderId), REPORT_DIGEST_BYTES);
+    }
+
+    /**
+     * Returns the prefix shared by the external ids of all the reports of the
+     * given job.
+     *
+     * @param job the job
+     * @return the external id prefix of the job reports
+     */
+    public static String jobPrefix(Job<?, ?> job) {
+        return jobPrefix(job.getFullName());
+    }
+
+    private static String jobPrefix(String jobFullName) {
+        return PREFIX + digest(jobFullName, JOB_DIGEST_BYTES) + "-";
+    }
+
+    private static String digest(String value, int length) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, length);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
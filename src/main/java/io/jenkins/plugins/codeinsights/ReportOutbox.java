@@ -0,0 +1,264 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Job;
+import hudson.model.Run;
+import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Append only journal of the reports built but not yet published.
+ * <p>
+ * An entry is appended when a completed run dispatches a report builder and
+ * acknowledged once the report has been published, or when the builder has
+ * not built any report. Entries not acknowledged are replayed at startup
+ * rebuilding the report from the run with the same builder. The journal
+ * stores only the reference to the run and the builder, so that the write
+ * path costs a short append, synced to the disk to survive a crash. Replayed
+ * reports are rebuilt on the pool of the report builders, with their
+ * timeout, see {@link CodeInsightsListener}.
+ * <p>
+ * Entries whose build or publishing failed are kept apart from those in
+ * flight, the journal is compacted to the failed entries once nothing is in
+ * flight.
+ */
+@Extension
+public class ReportOutbox {
+    private static final Logger logger = Logger.getLogger(ReportOutbox.class.getName());
+
+    private static final int MAX_ATTEMPTS = SystemProperties.getInteger(ReportOutbox.class.getName() + ".maxAttempts", 3);
+    private static final int MAX_FAILED = SystemProperties.getInteger(ReportOutbox.class.getName() + ".maxFailed", 1000);
+    private static final long COMPACT_THRESHOLD = 1024L * 1024L;
+    private static final String ADD = "ADD";
+    private static final String ACK = "ACK";
+
+    private record Entry(long id, int attempt, String job, int run, String builder) {
+    }
+
+    public static ReportOutbox get() {
+        return ExtensionList.lookupSingleton(ReportOutbox.class);
+    }
+
+    // entries of this session in flight
+    private final Map<Long, String> pending = new HashMap<>();
+    // entries of this session failed, to replay on restart
+    private final Map<Long, String> failed = new LinkedHashMap<>();
+    private FileOutputStream journal;
+    // unique across restarts
+    private long nextId = System.currentTimeMillis() << 10;
+    private long written;
+
+    private File getJournalFile() {
+        return new File(Jenkins.get().getRootDir(), "code-insights/outbox.log");
+    }
+
+    /**
+     * Records a report that is going to be built and published.
+     *
+     * @param run that produces the report
+     * @param builder that builds the report
+     * @param attempt how many times the report has been built
+     * @return the id of the journal entry to acknowledge once published, or
+     *         {@code -1} if the entry could not be recorded
+     */
+    public synchronized long add(Run<?, ?> run, CodeInsightsReporBuilder builder, int attempt) {
+        long id = nextId++;
+        String line = String.join("\t", ADD, String.valueOf(id), String.valueOf(attempt), run.getParent().getFullName(), String.valueOf(run.getNumber()), builder.getClass().getName());
+        if (append(line)) {
+            pending.put(id, line);
+            return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Acknowledges that the report of the given entry has been published.
+     *
+     * @param id of the journal entry
+     */
+    public synchronized void ack(long id) {
+        if (id < 0 || pending.remove(id) == null) {
+            return;
+        }
+        append(ACK + "\t" + id);
+        compact();
+    }
+
+    /**
+     * Records that the report of the given entry could not be built or
+     * published, the entry will be replayed on restart.
+     *
+     * @param id of the journal entry
+     */
+    public synchronized void fail(long id) {
+        String line = id < 0 ? null : pending.remove(id);
+        if (line == null) {
+            return;
+        }
+        failed.put(id, line);
+        if (failed.size() > MAX_FAILED) {
+            Long eldest = failed.keySet().iterator().next();
+            failed.remove(eldest);
+            append(ACK + "\t" + eldest);
+            logger.warning(() -> "Discard code insights outbox entry " + eldest + ", too many failures");
+        }
+        compact();
+    }
+
+    /*
+     * Once nothing is in flight, starts a new journal with only the failed
+     * entries.
+     */
+    private void compact() {
+        if (!pending.isEmpty() || written <= COMPACT_THRESHOLD) {
+            return;
+        }
+        closeJournal();
+        try {
+            Files.deleteIfExists(getJournalFile().toPath());
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Fail to compact code insights outbox", e);
+        }
+        written = 0;
+        failed.values().forEach(this::append);
+    }
+
+    private boolean append(String line) {
+        try {
+            if (journal == null) {
+                File file = getJournalFile();
+                Files.createDirectories(file.getParentFile().toPath());
+                journal = new FileOutputStream(file, true);
+            }
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            journal.write(bytes);
+            journal.getFD().sync();
+            written += bytes.length;
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Fail to write code insights outbox", e);
+            closeJournal();
+            return false;
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Fail to close code insights outbox", e);
+            }
+            journal = null;
+        }
+    }
+
+    /*
+     * Reads the pending entries of previous sessions and starts a new journal
+     * with only the entries of this session, replayed entries are journaled
+     * again when re-enqueued.
+     */
+    private synchronized List<Entry> drainJournal() throws IOException {
+        File file = getJournalFile();
+        if (!file.exists()) {
+            return List.of();
+        }
+
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                try {
+                    if (ADD.equals(fields[0]) && fields.length == 6) {
+                        long id = Long.parseLong(fields[1]);
+                        if (pending.containsKey(id) || failed.containsKey(id)) {
+                            continue;
+                        }
+                        entries.put(id, new Entry(id, Integer.parseInt(fields[2]), fields[3], Integer.parseInt(fields[4]), fields[5]));
+                    } else if (ACK.equals(fields[0]) && fields.length == 2) {
+                        entries.remove(Long.parseLong(fields[1]));
+                    }
+                } catch (NumberFormatException e) {
+                    // truncated line of a crash
+                    logger.fine(() -> "Skip corrupted code insights outbox line");
+                }
+            }
+        }
+        closeJournal();
+        Files.delete(file.toPath());
+        written = 0;
+        pending.values().forEach(this::append);
+        failed.values().forEach(this::append);
+        return new ArrayList<>(entries.values());
+    }
+
+    void replay() {
+        List<Entry> entries;
+        try {
+            entries = drainJournal();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Fail to read code insights outbox", e);
+            return;
+        }
+
+        CodeInsightsListener listener = CodeInsightsListener.get();
+        for (Entry entry : entries) {
+            if (entry.attempt() >= MAX_ATTEMPTS) {
+                logger.warning(() -> "Discard code insights of " + entry.job() + " #" + entry.run() + " after " + entry.attempt() + " attempts");
+                continue;
+            }
+            Job<?, ?> job = Jenkins.get().getItemByFullName(entry.job(), Job.class);
+            Run<?, ?> run = job != null ? job.getBuildByNumber(entry.run()) : null;
+            CodeInsightsReporBuilder builder = ExtensionList.lookup(CodeInsightsReporBuilder.class).stream()
+                    .filter(b -> b.getClass().getName().equals(entry.builder()))
+                    .findFirst()
+                    .orElse(null);
+            if (run == null || builder == null) {
+                continue;
+            }
+
+            long id = add(run, builder, entry.attempt() + 1);
+            listener.replay(run, builder, id);
+        }
+    }
+
+    @Initializer(after = InitMilestone.JOB_CONFIG_ADAPTED)
+    public static void replayOnStartup() {
+        Timer.get().submit(() -> ReportOutbox.get().replay());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import jenkins.scm.api.SCMHead;
+import jenkins.scm.api.SCMRevision;
+import jenkins.scm.api.SCMSource;
+import jenkins.scm.api.SCMSourceOwner;
+import jenkins.util.SystemProperties;
+
+/**
+ * Controller wide cache of the revisions fetched from the remote repository
+ * for a source and head.
+ * <p>
+ * Fetching a revision is a network call, its result is reused for a short
+ * time so that contexts built together for the same head do not ask the
+ * Bitbucket API again. At most {@code maxEntries} revisions are kept, the
+ * least recently used are evicted first.
+ */
+@Extension
+public class SCMRevisionCache {
+
+    private static final long TTL = SystemProperties.getLong(SCMRevisionCache.class.getName() + ".ttl", 60L);
+    private static final int MAX_ENTRIES = SystemProperties.getInteger(SCMRevisionCache.class.getName() + ".maxEntries", 1000);
+
+    private record Key(String owner, String source, String head) {
+    }
+
+    private record Entry(Optional<SCMRevision> revision, long expiresAt) {
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    public static SCMRevisionCache get() {
+        return ExtensionList.lookupSingleton(SCMRevisionCache.class);
+    }
+
+    // the least recently used entry is evicted when full, expired or not
+    private final Map<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns the current revision of the given head, fetching it from the
+     * remote repository only when not cached or expired.
+     *
+     * @param source the SCM source
+     * @param head the branch
+     * @param scmFacade a facade for Jenkins SCM
+     * @return the revision or empty if the head does not exist
+     */
+    public Optional<SCMRevision> fetch(SCMSource source, SCMHead head, SCMFacade scmFacade) {
+        SCMSourceOwner owner = source.getOwner();
+        Key key = new Key(owner != null ? owner.getFullName() : null, source.getId(), head.getName());
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry != null && !entry.isExpired(now)) {
+            return entry.revision();
+        }
+
+        // fetched outside of the map to not block other keys on network
+        Optional<SCMRevision> revision = scmFacade.findRevision(source, head);
+        if (TTL > 0) {
+            synchronized (cache) {
+                cache.put(key, new Entry(revision, System.nanoTime() + TimeUnit.SECONDS.toNanos(TTL)));
+            }
+        }
+        return revision;
+    }
+
+    /**
+     * Discards all cached revisions.
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
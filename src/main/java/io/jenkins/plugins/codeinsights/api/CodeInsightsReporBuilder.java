@@ -20,6 +20,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.ExtensionPoint;
 import hudson.model.Run;
 import io.jenkins.plugins.codeinsights.CodeInsightsContext;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
 import io.jenkins.plugins.codeinsights.api.dto.Report;
 import java.util.Optional;
 
@@ -31,6 +32,11 @@ public interface CodeInsightsReporBuilder extends ExtensionPoint {
 
     /**
      * Build a {@link Report} to publish on Bitbucket Cloud.
+     * <p>
+     * When the report could not be built because of an error, for example
+     * reading the build artifacts, implementations should throw instead of
+     * returning {@code empty} or a partial report, otherwise the report
+     * previously published for the commit is deleted as stale.
      *
      * @param run running build of a job
      * @param context build to gather useful information from given build run
@@ -39,4 +45,24 @@ public interface CodeInsightsReporBuilder extends ExtensionPoint {
      */
     @NonNull
     Optional<Report> build(Run<?, ?> run, CodeInsightsContext context);
+
+    /**
+     * Provides the annotations of a report built by this builder.
+     * <p>
+     * The returned iterable is consumed lazily, chunk by chunk, when the report
+     * is published, so implementations that handle a large number of findings
+     * should produce annotations on demand instead of collecting them in
+     * {@link Report#getAnnotations()}. If the iterator implements
+     * {@link AutoCloseable} it is closed once consumed.
+     *
+     * @param run running build of a job
+     * @param context build to gather useful information from given build run
+     * @param report the report returned by
+     *        {@link #build(Run, CodeInsightsContext)}
+     * @return the annotations of the report, by default the report ones
+     */
+    @NonNull
+    default Iterable<Annotation> annotations(Run<?, ?> run, CodeInsightsContext context, Report report) {
+        return report.getAnnotations();
+    }
 }
@@ -19,6 +19,8 @@ package io.jenkins.plugins.codeinsights.api.dto;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonFormat.Feature;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Date;
 import java.util.UUID;
@@ -31,6 +33,8 @@ public class Annotation {
     @JsonProperty("annotation_type")
     private AnnotationType annotationType;
     private String path;
+    // 0 means the annotation is not bound to a line
+    @JsonInclude(Include.NON_DEFAULT)
     private int line;
     private String title;
     private String summary;
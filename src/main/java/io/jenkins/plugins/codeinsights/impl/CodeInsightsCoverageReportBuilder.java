@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import hudson.Extension;
+import hudson.model.Run;
+import io.jenkins.plugins.codeinsights.CodeInsightsContext;
+import io.jenkins.plugins.codeinsights.PullRequestChanges;
+import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationType;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import io.jenkins.plugins.codeinsights.api.dto.Report.Data;
+import io.jenkins.plugins.codeinsights.api.dto.ReportDataType;
+import io.jenkins.plugins.codeinsights.api.dto.ReportResult;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import jenkins.util.SystemProperties;
+import jenkins.util.VirtualFile;
+
+/**
+ * Builds a coverage report from the JaCoCo or Cobertura XML reports archived
+ * by the build.
+ * <p>
+ * The report shows the overall line coverage, when the build is of a pull
+ * request, uncovered lines of the files changed by the pull request are
+ * annotated. Consecutive uncovered lines are reported by a single annotation.
+ */
+@Extension
+public class CodeInsightsCoverageReportBuilder implements CodeInsightsReporBuilder {
+    private static final String INCLUDES = SystemProperties.getString(CodeInsightsCoverageReportBuilder.class.getName() + ".includes",
+            "**/jacoco.xml,**/cobertura.xml,**/coverage.xml,**/cobertura-coverage.xml");
+    // Bitbucket accepts up to 1000 annotations per report
+    private static final int MAX_ANNOTATIONS = SystemProperties.getInteger(CodeInsightsCoverageReportBuilder.class.getName() + ".maxAnnotations", 1000);
+
+    @Override
+    public Optional<Report> build(Run<?, ?> run, CodeInsightsContext context) {
+        if (!run.getHasArtifacts()) {
+            return Optional.empty();
+        }
+
+        VirtualFile root = run.getArtifactManager().root();
+        Collection<String> reports;
+        try {
+            reports = root.list(INCLUDES, null, false);
+        } catch (IOException e) {
+            // an empty report would let the published one be collected
+            throw new UncheckedIOException("Fail to list coverage reports of " + run.getFullDisplayName(), e);
+        }
+        if (reports.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Set<String> changedFiles = PullRequestChanges.get().getChangedFiles(context).orElse(Set.of());
+        CoverageParser parser = new CoverageParser(changedFiles);
+        for (String path : reports) {
+            try (InputStream in = root.child(path).open()) {
+                parser.parse(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fail to parse coverage report " + path + " of " + run.getFullDisplayName(), e);
+            }
+        }
+
+        double coverage = parser.getLineCoverage();
+        if (coverage < 0) {
+            return Optional.empty();
+        }
+        Report report = new Report();
+        report.setTitle("Code coverage");
+        report.setReportType(ReportType.COVERAGE);
+        report.setType("report");
+        report.setResult(ReportResult.PASSED);
+        report.setDetails(String.format("%d of %d lines are covered by tests", parser.getCoveredLines(), parser.getCoveredLines() + parser.getMissedLines()));
+        report.getData().addAll(buildData(coverage, parser.getUncoveredLines()));
+        report.getAnnotations().addAll(buildAnnotations(parser.getUncoveredLines(), MAX_ANNOTATIONS));
+        return Optional.of(report);
+    }
+
+    static Collection<Data> buildData(double coverage, Map<String, BitSet> uncoveredLines) {
+        Data percentage = new Data();
+        percentage.setTitle("Line coverage");
+        percentage.setType(ReportDataType.PERCENTAGE);
+        percentage.setValue(Math.round(coverage * 10) / 10.0);
+        if (uncoveredLines.isEmpty()) {
+            return List.of(percentage);
+        }
+
+        Data uncovered = new Data();
+        uncovered.setTitle("Uncovered lines in changed files");
+        uncovered.setType(ReportDataType.NUMBER);
+        uncovered.setValue(uncoveredLines.values().stream().mapToInt(BitSet::cardinality).sum());
+        return List.of(percentage, uncovered);
+    }
+
+    /**
+     * Builds an annotation for each range of consecutive uncovered lines.
+     *
+     * @param uncoveredLines the uncovered lines by file path
+     * @param limit the maximum number of annotations
+     * @return the annotations
+     */
+    static List<Annotation> buildAnnotations(Map<String, BitSet> uncoveredLines, int limit) {
+        List<Annotation> annotations = new ArrayList<>();
+        for (Map.Entry<String, BitSet> file : uncoveredLines.entrySet()) {
+            BitSet lines = file.getValue();
+            for (int start = lines.nextSetBit(1); start > 0; start = lines.nextSetBit(start)) {
+                if (annotations.size() >= limit) {
+                    return annotations;
+                }
+                int end = lines.nextClearBit(start) - 1;
+                Annotation annotation = new Annotation();
+                annotation.setAnnotationType(AnnotationType.CODE_SMELL);
+                annotation.setSeverity(AnnotationSeverity.LOW);
+                annotation.setPath(file.getKey());
+                annotation.setLine(start);
+                annotation.setTitle("Uncovered code");
+                annotation.setSummary(start == end
+                        ? "Line " + start + " is not covered by tests"
+                        : "Lines " + start + "-" + end + " are not covered by tests");
+                annotations.add(annotation);
+                start = end + 1;
+            }
+        }
+        return annotations;
+    }
+}
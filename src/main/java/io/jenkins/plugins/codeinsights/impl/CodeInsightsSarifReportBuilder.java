@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import io.jenkins.plugins.codeinsights.CodeInsightsContext;
+import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
+import io.jenkins.plugins.codeinsights.api.dto.Report;
+import io.jenkins.plugins.codeinsights.api.dto.ReportResult;
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import jenkins.util.SystemProperties;
+import jenkins.util.VirtualFile;
+import org.jenkinsci.plugins.workflow.actions.WorkspaceAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.graphanalysis.DepthFirstScanner;
+
+/**
+ * Builds a report of the findings of the SARIF logs archived by the build
+ * (artifacts with the {@code .sarif} extension).
+ * <p>
+ * Logs are parsed in a single streaming pass that counts the findings by
+ * severity and keeps at most {@code maxAnnotations} annotations, the most
+ * severe ones. Absolute locations are made relative to the workspaces of the
+ * run.
+ */
+@Extension
+public class CodeInsightsSarifReportBuilder implements CodeInsightsReporBuilder {
+    // Bitbucket accepts up to 1000 annotations per report
+    private static final int MAX_ANNOTATIONS = SystemProperties.getInteger(CodeInsightsSarifReportBuilder.class.getName() + ".maxAnnotations", 1000);
+    private static final String EXTENSION = ".sarif";
+
+    @Override
+    public Optional<Report> build(Run<?, ?> run, CodeInsightsContext context) {
+        if (!run.getHasArtifacts()) {
+            return Optional.empty();
+        }
+
+        List<? extends Run<?, ?>.Artifact> logs = run.getArtifacts().stream()
+                .filter(artifact -> artifact.getFileName().endsWith(EXTENSION))
+                .toList();
+        if (logs.isEmpty()) {
+            return Optional.empty();
+        }
+
+        SarifParser parser = new SarifParser(MAX_ANNOTATIONS, checkoutRoots(run));
+        VirtualFile root = run.getArtifactManager().root();
+        for (Run<?, ?>.Artifact log : logs) {
+            try (InputStream in = root.child(log.relativePath).open()) {
+                parser.parse(in);
+            } catch (IOException e) {
+                // a partial report would let the published one be collected
+                throw new UncheckedIOException("Fail to parse SARIF log " + log.relativePath + " of " + run.getFullDisplayName(), e);
+            }
+        }
+        return Optional.of(buildReport(parser));
+    }
+
+    /*
+     * Returns the workspaces of the run, absolute locations of the logs are
+     * made relative to them.
+     */
+    private static Set<String> checkoutRoots(Run<?, ?> run) {
+        Set<String> roots = new LinkedHashSet<>();
+        if (run instanceof AbstractBuild<?, ?> build) {
+            FilePath workspace = build.getWorkspace();
+            if (workspace != null) {
+                roots.add(workspace.getRemote());
+            }
+        } else if (run instanceof FlowExecutionOwner.Executable executable) {
+            FlowExecutionOwner owner = executable.asFlowExecutionOwner();
+            FlowExecution execution = owner != null ? owner.getOrNull() : null;
+            if (execution != null) {
+                for (FlowNode node : new DepthFirstScanner().allNodes(execution)) {
+                    WorkspaceAction workspace = node.getPersistentAction(WorkspaceAction.class);
+                    if (workspace != null) {
+                        roots.add(workspace.getRemote());
+                    }
+                }
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Builds a report from the findings of the given parser.
+     *
+     * @param parser that parsed the SARIF logs
+     * @return the report with the findings as annotations
+     */
+    public static Report buildReport(SarifParser parser) {
+        Report report = new Report();
+        report.setTitle(parser.getTools().isEmpty() ? "SARIF" : String.join(", ", parser.getTools()));
+        report.setReportType(ReportType.BUG);
+        report.setType("report");
+        report.getData().addAll(parser.getData());
+        int total = parser.getTotalCount();
+        boolean failed = parser.getCount(AnnotationSeverity.CRITICAL) + parser.getCount(AnnotationSeverity.HIGH) > 0;
+        report.setResult(failed ? ReportResult.FAILED : ReportResult.PASSED);
+        report.setDetails(total == 0 ? "Reports no issues" : "There are " + total + " issues");
+        report.getAnnotations().addAll(parser.getAnnotations());
+        return report;
+    }
+}
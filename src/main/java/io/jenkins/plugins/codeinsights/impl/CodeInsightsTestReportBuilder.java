@@ -18,10 +18,16 @@ package io.jenkins.plugins.codeinsights.impl;
 
 import hudson.Util;
 import hudson.model.Run;
+import hudson.tasks.junit.CaseResult;
 import hudson.tasks.junit.TestResult;
 import hudson.tasks.junit.TestResultAction;
 import io.jenkins.plugins.codeinsights.CodeInsightsContext;
+import io.jenkins.plugins.codeinsights.PullRequestChanges;
 import io.jenkins.plugins.codeinsights.api.CodeInsightsReporBuilder;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationResult;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationType;
 import io.jenkins.plugins.codeinsights.api.dto.Report;
 import io.jenkins.plugins.codeinsights.api.dto.Report.Data;
 import io.jenkins.plugins.codeinsights.api.dto.ReportDataType;
@@ -29,31 +35,66 @@ import io.jenkins.plugins.codeinsights.api.dto.ReportResult;
 import io.jenkins.plugins.codeinsights.api.dto.ReportType;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import jenkins.util.SystemProperties;
+import org.apache.commons.lang3.StringUtils;
 import org.jenkinsci.plugins.variant.OptionalExtension;
 
+/**
+ * Builds the test report from the counters cached by the {@link TestResultAction}
+ * in the build. The summary does not include the duration, so the
+ * {@link TestResult} tree (that deserializes junitResult.xml) is loaded to
+ * read it only once per action and number of tests: the in progress reports
+ * of a pipeline, built at each stage, reuse the duration until new tests are
+ * recorded.
+ * <p>
+ * At most {@code maxAnnotations} failures are annotated, the most recent ones
+ * (lower age) are preferred.
+ */
 @OptionalExtension(requirePlugins = "junit")
 public class CodeInsightsTestReportBuilder implements CodeInsightsReporBuilder {
+    private static final int MAX_ANNOTATIONS = SystemProperties.getInteger(CodeInsightsTestReportBuilder.class.getName() + ".maxAnnotations", 100);
+    private static final String TEST_SOURCE_ROOT = SystemProperties.getString(CodeInsightsTestReportBuilder.class.getName() + ".testSourceRoot", "src/test/java");
+    private static final int MAX_SUMMARY_LENGTH = 450;
+    private static final int MAX_DETAILS_LENGTH = 2000;
+
+    // new failures first, then by name to be stable between builds
+    private static final Comparator<CaseResult> FAILURE_PRIORITY = Comparator.comparingInt(CaseResult::getAge)
+            .thenComparing(CaseResult::getFullName);
+
+    private record Duration(int totalCount, float value) {
+    }
+
+    // actions are weakly referenced, entries go away with the run
+    private final Map<TestResultAction, Duration> durations = new WeakHashMap<>();
 
     @Override
     public Optional<Report> build(Run<?, ?> run, CodeInsightsContext context) {
         TestResultAction action = run.getAction(TestResultAction.class);
         if (action != null) {
-            TestResult testResult = action.getResult();
+            int failCount = action.getFailCount();
             Report testReport = new Report();
-            testReport.setTitle(testResult.getTitle());
-            testReport.setLink(Util.ensureEndsWith(context.getRootURL(), "/") + testResult.getUrl());
+            testReport.setTitle(action.getDisplayName());
+            testReport.setLink(Util.ensureEndsWith(context.getRootURL(), "/") + run.getUrl() + action.getUrlName());
             testReport.setRemoteLinkEnabled(true);
             testReport.setReportType(ReportType.TEST);
             testReport.setType("report");
-            testReport.getData().addAll(buildData(testResult));
-            if (testResult.getFailCount() > 0) {
+            float duration = duration(action);
+            testReport.getData().addAll(buildData(action.getTotalCount(), action.getSkipCount(), failCount, duration));
+            if (failCount > 0) {
                 testReport.setDetails("There are failed tests");
             } else {
                 testReport.setDetails("Reports no tests failure");
             }
-            if (testResult.getFailCount() > 0) {
+            if (failCount > 0) {
                 testReport.setResult(ReportResult.FAILED);
             } else {
                 testReport.setResult(ReportResult.PASSED);
@@ -64,41 +105,163 @@ public class CodeInsightsTestReportBuilder implements CodeInsightsReporBuilder {
         }
     }
 
-    private Collection<Data> buildData(TestResult result) {
+    /*
+     * The duration of the tests of the action, loaded again only when the
+     * number of tests changes.
+     */
+    private float duration(TestResultAction action) {
+        int totalCount = action.getTotalCount();
+        synchronized (durations) {
+            Duration cached = durations.get(action);
+            if (cached != null && cached.totalCount() == totalCount) {
+                return cached.value();
+            }
+        }
+        TestResult result = action.getResult();
+        float value = result != null ? result.getDuration() : 0;
+        synchronized (durations) {
+            durations.put(action, new Duration(totalCount, value));
+        }
+        return value;
+    }
+
+    @Override
+    public Iterable<Annotation> annotations(Run<?, ?> run, CodeInsightsContext context, Report report) {
+        TestResultAction action = run.getAction(TestResultAction.class);
+        if (action == null || action.getFailCount() == 0 || MAX_ANNOTATIONS <= 0) {
+            return List.of();
+        }
+
+        return new Iterable<>() {
+            private List<Annotation> annotations;
+
+            @Override
+            public synchronized Iterator<Annotation> iterator() {
+                if (annotations == null) {
+                    Set<String> changedFiles = PullRequestChanges.get().getChangedFiles(context).orElse(Set.of());
+                    annotations = buildAnnotations(selectFailures(action.getResult().getFailedTests(), MAX_ANNOTATIONS), changedFiles);
+                }
+                return annotations.iterator();
+            }
+        };
+    }
+
+    /**
+     * Selects the {@code limit} failures with higher priority using a bounded
+     * heap, so that the cost is O(n log limit) regardless of how many tests
+     * failed.
+     *
+     * @param failures all failed tests
+     * @param limit the maximum number of failures to select
+     * @return the selected failures ordered by priority
+     */
+    static List<CaseResult> selectFailures(Collection<CaseResult> failures, int limit) {
+        // the head is the failure with the lowest priority
+        PriorityQueue<CaseResult> selected = new PriorityQueue<>(limit + 1, FAILURE_PRIORITY.reversed());
+        for (CaseResult failure : failures) {
+            selected.offer(failure);
+            if (selected.size() > limit) {
+                selected.poll();
+            }
+        }
+        List<CaseResult> result = new ArrayList<>(selected);
+        result.sort(FAILURE_PRIORITY);
+        return result;
+    }
+
+    private List<Annotation> buildAnnotations(List<CaseResult> failures, Set<String> changedFiles) {
+        Map<String, List<String>> sources = indexSources(changedFiles);
+        List<Annotation> annotations = new ArrayList<>(failures.size());
+        for (CaseResult failure : failures) {
+            Annotation annotation = new Annotation();
+            annotation.setAnnotationType(AnnotationType.BUG);
+            annotation.setResult(AnnotationResult.FAILED);
+            annotation.setSeverity(AnnotationSeverity.HIGH);
+            annotation.setPath(toSourcePath(failure.getClassName(), sources));
+            annotation.setTitle(failure.getDisplayName());
+            String summary = StringUtils.defaultIfBlank(failure.getErrorDetails(), "Test " + failure.getFullDisplayName() + " failed");
+            annotation.setSummary(StringUtils.abbreviate(summary, MAX_SUMMARY_LENGTH));
+            annotation.setDetails(StringUtils.abbreviate(failure.getErrorStackTrace(), MAX_DETAILS_LENGTH));
+            annotations.add(annotation);
+        }
+        return annotations;
+    }
+
+    /*
+     * Indexes the given files by name without extension.
+     */
+    static Map<String, List<String>> indexSources(Collection<String> files) {
+        Map<String, List<String>> sources = new HashMap<>();
+        for (String file : files) {
+            String name = StringUtils.substringAfterLast("/" + file, "/");
+            sources.computeIfAbsent(StringUtils.substringBeforeLast(name, "."), k -> new ArrayList<>(1)).add(file);
+        }
+        return sources;
+    }
+
+    /**
+     * Maps a test class name to the path of its source file in the
+     * repository. The source is looked up by package and name among the
+     * given files, that are the files changed by the pull request, so that
+     * any source root and language is matched; otherwise the path is in the
+     * {@code testSourceRoot} folder.
+     *
+     * @param className the full qualified class name
+     * @param sources the files of interest indexed by name without extension
+     * @return the relative path of the source file
+     */
+    static String toSourcePath(String className, Map<String, List<String>> sources) {
+        if (StringUtils.isBlank(className)) {
+            return null;
+        }
+        String topLevelClass = StringUtils.substringBefore(className, "$");
+        String path = topLevelClass.replace('.', '/');
+        for (String file : sources.getOrDefault(StringUtils.substringAfterLast("." + topLevelClass, "."), List.of())) {
+            String source = StringUtils.substringBeforeLast(file, ".");
+            if (source.equals(path) || source.endsWith("/" + path)) {
+                return file;
+            }
+        }
+        path += ".java";
+        return StringUtils.isBlank(TEST_SOURCE_ROOT) ? path : Util.ensureEndsWith(TEST_SOURCE_ROOT, "/") + path;
+    }
+
+    static Collection<Data> buildData(int totalCount, int skipCount, int failCount, float duration) {
         List<Data> datas = new ArrayList<>();
-        if (result.getTotalCount() != 0) {
+        if (totalCount != 0) {
             Data data = new Data();
             data.setTitle("Number of test cases");
             data.setType(ReportDataType.NUMBER);
-            data.setValue(result.getTotalCount());
+            data.setValue(totalCount);
             datas.add(data);
         }
-        if (result.getSkipCount() != 0) {
+        if (skipCount != 0) {
             Data data = new Data();
             data.setTitle("Skipped Tests");
             data.setType(ReportDataType.NUMBER);
-            data.setValue(result.getSkipCount());
+            data.setValue(skipCount);
             datas.add(data);
         }
-        if (result.getFailCount() != 0) {
+        if (failCount != 0) {
             Data data = new Data();
             data.setTitle("Failed Tests");
             data.setType(ReportDataType.NUMBER);
-            data.setValue(result.getFailCount());
+            data.setValue(failCount);
             datas.add(data);
         }
-        if (result.getPassCount() != 0) {
+        int passCount = totalCount - failCount - skipCount;
+        if (passCount != 0) {
             Data data = new Data();
             data.setTitle("Passed Tests");
             data.setType(ReportDataType.NUMBER);
-            data.setValue(result.getPassCount());
+            data.setValue(passCount);
             datas.add(data);
         }
-        if (result.getDuration() > 0) {
+        if (duration > 0) {
             Data data = new Data();
             data.setTitle("Test Duration");
             data.setType(ReportDataType.DURATION);
-            data.setValue((long) result.getDuration() * 1000l);
+            data.setValue((long) (duration * 1000));
             datas.add(data);
         }
         return datas;
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Streaming parser of JaCoCo and Cobertura XML coverage reports, the format
+ * is detected from the root element.
+ * <p>
+ * The overall line coverage is read from the report totals. Line details are
+ * collected only for the source files of interest (the files changed by a
+ * pull request), so memory and work on line elements are bounded by the
+ * number of those files and not by the size of the code base. A parser can
+ * consume more reports, totals and lines are aggregated.
+ */
+public class CoverageParser {
+
+    // file name to the paths of interest with that name
+    private final Map<String, List<String>> files = new HashMap<>();
+    private final Map<String, BitSet> uncovered = new TreeMap<>();
+    private long coveredLines;
+    private long missedLines;
+
+    /**
+     * Creates a parser that collects the uncovered lines of the given files.
+     *
+     * @param paths the paths, relative to the repository root, of the files
+     *        of interest
+     */
+    public CoverageParser(Collection<String> paths) {
+        for (String path : paths) {
+            files.computeIfAbsent(StringUtils.substringAfterLast("/" + path, "/"), k -> new ArrayList<>(1)).add(path);
+        }
+    }
+
+    /**
+     * Parses the given coverage report.
+     *
+     * @param in the coverage report, it is not closed
+     * @throws IOException if fails to read the stream or it is not a supported
+     *         coverage report
+     */
+    public void parse(InputStream in) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // JaCoCo reports declare a DTD, never resolve it
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                // skip the prolog, that could have a DOCTYPE
+                while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if (!reader.isStartElement()) {
+                    throw new IOException("Empty coverage report");
+                }
+                switch (reader.getLocalName()) {
+                    case "report" -> parseJaCoCo(reader);
+                    case "coverage" -> parseCobertura(reader);
+                    default -> throw new IOException("Unsupported coverage report " + reader.getLocalName());
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Fail to parse coverage report", e);
+        }
+    }
+
+    private void parseJaCoCo(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        String pkg = null;
+        BitSet lines = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                switch (reader.getLocalName()) {
+                    case "package" -> pkg = reader.getAttributeValue(null, "name");
+                    case "sourcefile" -> {
+                        String name = reader.getAttributeValue(null, "name");
+                        lines = lines(StringUtils.isEmpty(pkg) ? name : pkg + "/" + name);
+                    }
+                    case "line" -> {
+                        // a line is uncovered when none of its instructions is covered
+                        if (lines != null && "0".equals(reader.getAttributeValue(null, "ci"))
+                                && !"0".equals(reader.getAttributeValue(null, "mi"))) {
+                            lines.set(toInt(reader.getAttributeValue(null, "nr")));
+                        }
+                    }
+                    case "counter" -> {
+                        // totals are the counters of the report element
+                        if (depth == 2 && "LINE".equals(reader.getAttributeValue(null, "type"))) {
+                            missedLines += toInt(reader.getAttributeValue(null, "missed"));
+                            coveredLines += toInt(reader.getAttributeValue(null, "covered"));
+                        }
+                    }
+                    default -> {
+                        // not relevant
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                switch (reader.getLocalName()) {
+                    case "package" -> pkg = null;
+                    case "sourcefile" -> lines = null;
+                    default -> {
+                        // not relevant
+                    }
+                }
+            }
+        }
+    }
+
+    private void parseCobertura(XMLStreamReader reader) throws XMLStreamException {
+        long valid = toInt(reader.getAttributeValue(null, "lines-valid"));
+        long covered = toInt(reader.getAttributeValue(null, "lines-covered"));
+        coveredLines += covered;
+        missedLines += Math.max(0, valid - covered);
+
+        BitSet lines = null;
+        boolean inMethods = false;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "class" -> lines = lines(reader.getAttributeValue(null, "filename"));
+                    // method lines are repeated in the class lines
+                    case "methods" -> inMethods = true;
+                    case "line" -> {
+                        if (lines != null && !inMethods && "0".equals(reader.getAttributeValue(null, "hits"))) {
+                            lines.set(toInt(reader.getAttributeValue(null, "number")));
+                        }
+                    }
+                    default -> {
+                        // not relevant
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "class" -> lines = null;
+                    case "methods" -> inMethods = false;
+                    default -> {
+                        // not relevant
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the uncovered lines of the file of interest that matches the
+     * given report path, report paths are relative to a source folder.
+     */
+    private BitSet lines(String reportPath) {
+        if (reportPath == null) {
+            return null;
+        }
+        List<String> candidates = files.get(StringUtils.substringAfterLast("/" + reportPath, "/"));
+        if (candidates != null) {
+            for (String path : candidates) {
+                if (path.equals(reportPath) || path.endsWith("/" + reportPath)) {
+                    return uncovered.computeIfAbsent(path, k -> new BitSet());
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int toInt(String value) {
+        try {
+            return value != null ? Math.max(0, Integer.parseInt(value)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public long getCoveredLines() {
+        return coveredLines;
+    }
+
+    public long getMissedLines() {
+        return missedLines;
+    }
+
+    /**
+     * Returns the line coverage of the parsed reports.
+     *
+     * @return the percentage of covered lines, or {@code -1} if the reports
+     *         have no lines
+     */
+    public double getLineCoverage() {
+        long total = coveredLines + missedLines;
+        return total == 0 ? -1 : coveredLines * 100.0 / total;
+    }
+
+    /**
+     * Returns the uncovered lines of the files of interest.
+     *
+     * @return the uncovered line numbers by file path, ordered by path
+     */
+    public Map<String, BitSet> getUncoveredLines() {
+        return uncovered;
+    }
+}
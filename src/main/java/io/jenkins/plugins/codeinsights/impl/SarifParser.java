@@ -0,0 +1,441 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationResult;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationType;
+import io.jenkins.plugins.codeinsights.api.dto.Report.Data;
+import io.jenkins.plugins.codeinsights.api.dto.ReportDataType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Streaming parser of SARIF logs.
+ * <p>
+ * The log is read token by token, only the tool section and the result being
+ * read are materialized as trees. All results are counted by severity, but at
+ * most {@code maxAnnotations} of them are kept as annotations, the most
+ * severe ones, so that memory is proportional to the cap and not to the size
+ * of the log. A parser can consume more logs, counts and annotations are
+ * aggregated.
+ * <p>
+ * Results that precede the tool section cannot be ranked until its rules are
+ * read. They are counted by rule and level, and at most {@code maxAnnotations}
+ * of them are buffered, selected by their own level: a rule that raises the
+ * severity of results without a level could be under represented.
+ */
+public class SarifParser {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_SUMMARY_LENGTH = 450;
+    private static final double CRITICAL_SECURITY_SEVERITY = 9.0;
+    private static final int MAX_BASE_DEPTH = 5;
+
+    // most severe first, then by location to be stable between builds
+    private static final Comparator<Annotation> PRIORITY = Comparator.comparingInt((Annotation a) -> -rank(a.getSeverity()))
+            .thenComparing(Annotation::getPath, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(Annotation::getLine);
+
+    // results waiting for the rules are ranked by their own level
+    private static final Comparator<Result> PENDING_PRIORITY = Comparator.comparingInt((Result r) -> -rank(toSeverity(StringUtils.defaultString(r.level(), "warning"), 0)))
+            .thenComparing(Result::uri, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(Result::line);
+
+    private final int maxAnnotations;
+    // the head is the annotation with the lowest priority
+    private final PriorityQueue<Annotation> selected;
+    private final Map<AnnotationSeverity, Integer> counts = new EnumMap<>(AnnotationSeverity.class);
+    private final Set<String> tools = new LinkedHashSet<>();
+    private final List<String> checkoutRoots = new ArrayList<>();
+
+    private record Location(String uri, String baseId) {
+    }
+
+    // the fields of a result needed to count and annotate it
+    private record Result(String ruleId, int ruleIndex, String level, String kind, String message, String uri, String baseId, int line) {
+        private static Result of(JsonNode result) {
+            JsonNode location = result.path("locations").path(0).path("physicalLocation");
+            return new Result(result.path("ruleId").asText(null),
+                    result.path("ruleIndex").asInt(-1),
+                    result.path("level").asText(null),
+                    result.path("kind").asText("fail"),
+                    result.path("message").path("text").asText(null),
+                    location.path("artifactLocation").path("uri").asText(null),
+                    location.path("artifactLocation").path("uriBaseId").asText(null),
+                    Math.max(0, location.path("region").path("startLine").asInt(0)));
+        }
+    }
+
+    private record RuleLevel(String ruleId, int ruleIndex, String level) {
+    }
+
+    // rules and bases are scoped to a run of the log
+    private static final class RunContext {
+        private final Map<String, JsonNode> rulesById = new HashMap<>();
+        private final List<JsonNode> rules = new ArrayList<>();
+        private final Map<String, JsonNode> bases = new HashMap<>();
+        // selected annotations whose base was not declared yet
+        private final Map<Annotation, Location> unresolved = new IdentityHashMap<>();
+        // results that precede the tool section, counted and at most maxAnnotations kept
+        private final Map<RuleLevel, Integer> pendingCounts = new HashMap<>();
+        private final PriorityQueue<Result> pending;
+        private boolean toolRead;
+
+        private RunContext(int maxAnnotations) {
+            // the head is the result with the lowest priority
+            pending = new PriorityQueue<>(maxAnnotations + 1, PENDING_PRIORITY.reversed());
+        }
+    }
+
+    public SarifParser(int maxAnnotations) {
+        this(maxAnnotations, List.of());
+    }
+
+    /**
+     * Creates a parser that keeps at most the given number of annotations.
+     *
+     * @param maxAnnotations the maximum number of annotations
+     * @param checkoutRoots the absolute paths where the repository was checked
+     *        out, absolute locations are made relative to them
+     */
+    public SarifParser(int maxAnnotations, Collection<String> checkoutRoots) {
+        this.maxAnnotations = Math.max(0, maxAnnotations);
+        this.selected = new PriorityQueue<>(this.maxAnnotations + 1, PRIORITY.reversed());
+        for (String root : checkoutRoots) {
+            this.checkoutRoots.add(StringUtils.appendIfMissing(toFilePath(root), "/"));
+        }
+    }
+
+    /**
+     * Parses the given SARIF log.
+     *
+     * @param in the SARIF log, it is closed once parsed
+     * @throws IOException if fails to read the stream or it is not a SARIF
+     *         log
+     */
+    public void parse(InputStream in) throws IOException {
+        try (JsonParser parser = MAPPER.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Not a SARIF log");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "runs".equals(name)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        parseRun(parser);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void parseRun(JsonParser parser) throws IOException {
+        RunContext run = new RunContext(maxAnnotations);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("tool".equals(name) && token == JsonToken.START_OBJECT) {
+                JsonNode driver = parser.<JsonNode> readValueAsTree().path("driver");
+                if (driver.hasNonNull("name")) {
+                    tools.add(driver.get("name").asText());
+                }
+                for (JsonNode rule : driver.path("rules")) {
+                    run.rules.add(rule);
+                    if (rule.hasNonNull("id")) {
+                        run.rulesById.put(rule.get("id").asText(), rule);
+                    }
+                }
+                run.toolRead = true;
+                addPending(run);
+            } else if ("originalUriBaseIds".equals(name) && token == JsonToken.START_OBJECT) {
+                parser.<JsonNode> readValueAsTree().fields().forEachRemaining(base -> run.bases.put(base.getKey(), base.getValue()));
+            } else if ("results".equals(name) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Result result = Result.of(parser.readValueAsTree());
+                    if ("pass".equals(result.kind()) || "notApplicable".equals(result.kind())) {
+                        continue;
+                    }
+                    if (run.toolRead) {
+                        addResult(result, run);
+                    } else {
+                        buffer(result, run);
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        // a log without tool section has no rules
+        addPending(run);
+
+        // the base of these locations was declared after their result
+        for (Map.Entry<Annotation, Location> entry : run.unresolved.entrySet()) {
+            Annotation annotation = entry.getKey();
+            // the path is part of the priority, re-insert to keep the heap ordered
+            if (selected.remove(annotation)) {
+                annotation.setPath(toPath(entry.getValue().uri(), entry.getValue().baseId(), run));
+                selected.offer(annotation);
+            }
+        }
+    }
+
+    private void buffer(Result result, RunContext run) {
+        run.pendingCounts.merge(new RuleLevel(result.ruleId(), result.ruleIndex(), result.level()), 1, Integer::sum);
+        if (maxAnnotations > 0) {
+            run.pending.offer(result);
+            if (run.pending.size() > maxAnnotations) {
+                run.pending.poll();
+            }
+        }
+    }
+
+    /*
+     * Counts and selects the buffered results, now that the rules are known.
+     */
+    private void addPending(RunContext run) {
+        for (Map.Entry<RuleLevel, Integer> entry : run.pendingCounts.entrySet()) {
+            RuleLevel key = entry.getKey();
+            counts.merge(toSeverity(key.level(), findRule(key.ruleId(), key.ruleIndex(), run)), entry.getValue(), Integer::sum);
+        }
+        run.pendingCounts.clear();
+        for (Result result : run.pending) {
+            JsonNode rule = findRule(result.ruleId(), result.ruleIndex(), run);
+            select(result, rule, toSeverity(result.level(), rule), run);
+        }
+        run.pending.clear();
+    }
+
+    private JsonNode findRule(String ruleId, int ruleIndex, RunContext run) {
+        JsonNode rule = ruleId != null ? run.rulesById.get(ruleId) : null;
+        if (rule == null && ruleIndex >= 0 && ruleIndex < run.rules.size()) {
+            rule = run.rules.get(ruleIndex);
+        }
+        return rule != null ? rule : MAPPER.missingNode();
+    }
+
+    private static AnnotationSeverity toSeverity(String level, JsonNode rule) {
+        String effectiveLevel = level != null ? level : rule.path("defaultConfiguration").path("level").asText("warning");
+        return toSeverity(effectiveLevel, rule.path("properties").path("security-severity").asDouble(0));
+    }
+
+    private void addResult(Result result, RunContext run) {
+        JsonNode rule = findRule(result.ruleId(), result.ruleIndex(), run);
+        AnnotationSeverity severity = toSeverity(result.level(), rule);
+        counts.merge(severity, 1, Integer::sum);
+        select(result, rule, severity, run);
+    }
+
+    private void select(Result result, JsonNode rule, AnnotationSeverity severity, RunContext run) {
+        if (maxAnnotations == 0) {
+            return;
+        }
+        // avoid to build annotations that would be discarded
+        Annotation lowest = selected.peek();
+        if (selected.size() >= maxAnnotations && rank(severity) < rank(lowest.getSeverity())) {
+            return;
+        }
+
+        String kind = result.kind();
+        Annotation annotation = new Annotation();
+        annotation.setAnnotationType(toType(kind, rule));
+        annotation.setSeverity(severity);
+        if ("fail".equals(kind)) {
+            annotation.setResult(AnnotationResult.FAILED);
+        }
+        String ruleId = result.ruleId() != null ? result.ruleId() : rule.path("id").asText(null);
+        String title = rule.path("shortDescription").path("text").asText(rule.path("name").asText(ruleId));
+        annotation.setTitle(StringUtils.abbreviate(title, MAX_TITLE_LENGTH));
+        annotation.setSummary(StringUtils.abbreviate(StringUtils.defaultIfBlank(result.message(), title), MAX_SUMMARY_LENGTH));
+        annotation.setLink(rule.path("helpUri").asText(null));
+        annotation.setPath(toPath(result.uri(), result.baseId(), run));
+        annotation.setLine(result.line());
+        if (result.baseId() != null && !run.bases.containsKey(result.baseId())) {
+            run.unresolved.put(annotation, new Location(result.uri(), result.baseId()));
+        }
+
+        selected.offer(annotation);
+        if (selected.size() > maxAnnotations) {
+            run.unresolved.remove(selected.poll());
+        }
+    }
+
+    /*
+     * Resolves the location against its base and returns the path relative to
+     * the repository root, null when the location is outside of it. A base
+     * not declared is assumed to be the repository root.
+     */
+    private String toPath(String uri, String baseId, RunContext run) {
+        if (uri == null) {
+            return null;
+        }
+        String resolved = resolve(uri, baseId, run, 0);
+        String path = toFilePath(resolved);
+        if (!isAbsolute(path)) {
+            return StringUtils.removeStart(path, "./");
+        }
+
+        for (String root : checkoutRoots) {
+            if (path.startsWith(root)) {
+                return path.substring(root.length());
+            }
+        }
+        for (JsonNode base : run.bases.values()) {
+            String root = toFilePath(resolve(base.path("uri").asText(""), base.path("uriBaseId").asText(null), run, 1));
+            if (isAbsolute(root) && path.startsWith(StringUtils.appendIfMissing(root, "/"))) {
+                return path.substring(StringUtils.appendIfMissing(root, "/").length());
+            }
+        }
+        return null;
+    }
+
+    private static String resolve(String uri, String baseId, RunContext run, int depth) {
+        JsonNode base = baseId != null ? run.bases.get(baseId) : null;
+        if (base == null || depth >= MAX_BASE_DEPTH || isAbsolute(toFilePath(uri))) {
+            return uri;
+        }
+        String baseUri = StringUtils.appendIfMissing(base.path("uri").asText(""), "/");
+        String resolved = "/".equals(baseUri) ? uri : baseUri + StringUtils.removeStart(uri, "./");
+        return resolve(resolved, base.path("uriBaseId").asText(null), run, depth + 1);
+    }
+
+    private static String toFilePath(String uri) {
+        String path = uri;
+        if (StringUtils.startsWithIgnoreCase(uri, "file:")) {
+            try {
+                path = new URI(uri).getPath();
+            } catch (URISyntaxException e) {
+                path = StringUtils.removeStart(StringUtils.removeStartIgnoreCase(uri, "file:"), "//");
+            }
+        }
+        if (path == null) {
+            return "";
+        }
+        path = path.replace('\\', '/');
+        // file:///C:/path has the path /C:/path
+        if (path.length() > 2 && path.charAt(0) == '/' && path.charAt(2) == ':') {
+            path = path.substring(1);
+        }
+        return path;
+    }
+
+    private static boolean isAbsolute(String path) {
+        return path.startsWith("/") || path.length() > 1 && path.charAt(1) == ':';
+    }
+
+    static AnnotationSeverity toSeverity(String level, double securitySeverity) {
+        if (securitySeverity >= CRITICAL_SECURITY_SEVERITY) {
+            return AnnotationSeverity.CRITICAL;
+        }
+        return switch (level) {
+            case "error" -> AnnotationSeverity.HIGH;
+            case "warning" -> AnnotationSeverity.MEDIUM;
+            default -> AnnotationSeverity.LOW;
+        };
+    }
+
+    private static AnnotationType toType(String kind, JsonNode rule) {
+        for (JsonNode tag : rule.path("properties").path("tags")) {
+            if ("security".equalsIgnoreCase(tag.asText())) {
+                return AnnotationType.VULNERABILITY;
+            }
+        }
+        return "fail".equals(kind) ? AnnotationType.BUG : AnnotationType.CODE_SMELL;
+    }
+
+    private static int rank(AnnotationSeverity severity) {
+        return switch (severity) {
+            case CRITICAL -> 3;
+            case HIGH -> 2;
+            case MEDIUM -> 1;
+            case LOW -> 0;
+        };
+    }
+
+    /**
+     * Returns the selected annotations ordered by priority.
+     *
+     * @return the most severe annotations
+     */
+    public List<Annotation> getAnnotations() {
+        List<Annotation> result = new ArrayList<>(selected);
+        result.sort(PRIORITY);
+        return result;
+    }
+
+    public int getCount(AnnotationSeverity severity) {
+        return counts.getOrDefault(severity, 0);
+    }
+
+    public int getTotalCount() {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Returns the name of the tools that produced the parsed logs.
+     *
+     * @return the tool names
+     */
+    public Set<String> getTools() {
+        return tools;
+    }
+
+    /**
+     * Returns the number of findings by severity as report data.
+     *
+     * @return the report data
+     */
+    public Collection<Data> getData() {
+        List<Data> datas = new ArrayList<>();
+        addData(datas, "Critical issues", getCount(AnnotationSeverity.CRITICAL));
+        addData(datas, "High severity issues", getCount(AnnotationSeverity.HIGH));
+        addData(datas, "Medium severity issues", getCount(AnnotationSeverity.MEDIUM));
+        addData(datas, "Low severity issues", getCount(AnnotationSeverity.LOW));
+        return datas;
+    }
+
+    private void addData(List<Data> datas, String title, int count) {
+        if (count != 0) {
+            Data data = new Data();
+            data.setTitle(title);
+            data.setType(ReportDataType.NUMBER);
+            data.setValue(count);
+            datas.add(data);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketAuthenticatedClient;
+import com.cloudbees.jenkins.plugins.bitbucket.api.BitbucketRequestException;
+import com.cloudbees.jenkins.plugins.bitbucket.server.client.BitbucketServerAPIClient;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+/*
+ * Drives the retry policy through the authenticated Bitbucket client, as the
+ * publisher does, so that responses are mapped to errors by the client.
+ */
+@WithJenkins
+class BitbucketRetryPolicyTest {
+
+    @RegisterExtension
+    static WireMockExtension wireMock = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    private BitbucketServerAPIClient client;
+    private BitbucketAuthenticatedClient authClient;
+
+    /*
+     * A Bitbucket client against the mock server, the retry policy wraps the
+     * same authenticated client calls used by the publisher.
+     */
+    @BeforeEach
+    void setup(JenkinsRule r) {
+        client = new BitbucketServerAPIClient(wireMock.baseUrl(), "owner", "repository", null, false);
+        authClient = client.adapt(BitbucketAuthenticatedClient.class);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+    }
+
+    private BitbucketRetryPolicy.Request<String> request(String path) {
+        return () -> authClient.get(path);
+    }
+
+    @Test
+    void retries_server_errors_until_success(JenkinsRule r) throws Exception {
+        wireMock.stubFor(get("/report").inScenario("outage").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(503)).willSetStateTo("still down"));
+        wireMock.stubFor(get("/report").inScenario("outage").whenScenarioStateIs("still down")
+                .willReturn(aResponse().withStatus(500)).willSetStateTo("up"));
+        wireMock.stubFor(get("/report").inScenario("outage").whenScenarioStateIs("up")
+                .willReturn(aResponse().withStatus(200).withBody("ok")));
+
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(5, 1, 10, 10, 60);
+
+        assertThat(policy.execute("workspace", request("/report"))).isEqualTo("ok");
+        wireMock.verify(3, getRequestedFor(urlEqualTo("/report")));
+    }
+
+    @Test
+    void rate_limited_requests_wait_at_least_the_rate_limit_delay(JenkinsRule r) throws Exception {
+        wireMock.stubFor(get("/report").inScenario("limited").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(429)).willSetStateTo("allowed"));
+        wireMock.stubFor(get("/report").inScenario("limited").whenScenarioStateIs("allowed")
+                .willReturn(aResponse().withStatus(200).withBody("ok")));
+
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(5, 1, 1000, 200, 60);
+
+        long start = System.nanoTime();
+        assertThat(policy.execute("workspace", request("/report"))).isEqualTo("ok");
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(200_000_000L);
+        wireMock.verify(2, getRequestedFor(urlEqualTo("/report")));
+    }
+
+    @Test
+    void does_not_retry_client_errors(JenkinsRule r) {
+        wireMock.stubFor(get("/report").willReturn(aResponse().withStatus(400)));
+        wireMock.stubFor(get("/missing").willReturn(aResponse().withStatus(404)));
+
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(5, 1, 10, 10, 60);
+
+        assertThatThrownBy(() -> policy.execute("workspace", request("/report"))).isInstanceOf(IOException.class);
+        wireMock.verify(1, getRequestedFor(urlEqualTo("/report")));
+        // the client reports a missing resource as FileNotFoundException
+        assertThatThrownBy(() -> policy.execute("workspace", request("/missing"))).isInstanceOf(IOException.class);
+        wireMock.verify(1, getRequestedFor(urlEqualTo("/missing")));
+    }
+
+    @Test
+    void gives_up_after_max_attempts(JenkinsRule r) {
+        wireMock.stubFor(get("/report").willReturn(aResponse().withStatus(502)));
+
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(3, 1, 10, 10, 60);
+
+        assertThatThrownBy(() -> policy.execute("workspace", request("/report")))
+                .isInstanceOfSatisfying(BitbucketRequestException.class, e -> assertThat(e.getHttpCode()).isEqualTo(502));
+        wireMock.verify(3, getRequestedFor(urlEqualTo("/report")));
+    }
+
+    @Test
+    void retry_budget_is_shared_by_the_requests_of_a_workspace(JenkinsRule r) {
+        wireMock.stubFor(get("/report").willReturn(aResponse().withStatus(500)));
+
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(10, 1, 10, 10, 2);
+
+        assertThatThrownBy(() -> policy.execute("workspace", request("/report"))).isInstanceOf(BitbucketRequestException.class);
+        wireMock.verify(3, getRequestedFor(urlEqualTo("/report")));
+
+        // budget exhausted, fails at the first attempt
+        assertThatThrownBy(() -> policy.execute("workspace", request("/report"))).isInstanceOf(BitbucketRequestException.class);
+        wireMock.verify(4, getRequestedFor(urlEqualTo("/report")));
+
+        // other workspaces have their own budget
+        assertThatThrownBy(() -> policy.execute("other", request("/report"))).isInstanceOf(BitbucketRequestException.class);
+        wireMock.verify(7, getRequestedFor(urlEqualTo("/report")));
+    }
+
+    @Test
+    void does_not_retry_malformed_responses(JenkinsRule r) {
+        wireMock.stubFor(get("/report").willReturn(aResponse().withStatus(200).withBody("{ \"values\": [")));
+
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(5, 1, 10, 10, 60);
+        ObjectMapper mapper = new ObjectMapper();
+        BitbucketRetryPolicy.Request<String> request = request("/report");
+
+        assertThatThrownBy(() -> policy.execute("workspace", () -> mapper.readTree(request.execute())))
+                .isInstanceOf(JsonProcessingException.class);
+        wireMock.verify(1, getRequestedFor(urlEqualTo("/report")));
+    }
+
+    @Test
+    void retries_connection_failures(JenkinsRule r) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        AtomicInteger attempts = new AtomicInteger();
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(3, 1, 10, 10, 60);
+
+        try (BitbucketServerAPIClient unreachable = new BitbucketServerAPIClient("http://localhost:" + port, "owner", "repository", null, false)) {
+            BitbucketAuthenticatedClient unreachableClient = unreachable.adapt(BitbucketAuthenticatedClient.class);
+            assertThatThrownBy(() -> policy.execute("workspace", () -> {
+                attempts.incrementAndGet();
+                return unreachableClient.get("/report");
+            })).isInstanceOf(IOException.class)
+                    .satisfies(e -> assertThat(BitbucketRetryPolicy.isRetryable((IOException) e)).isTrue());
+        }
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void backoff_is_bounded_by_the_exponential_ceiling() {
+        BitbucketRetryPolicy policy = new BitbucketRetryPolicy(10, 100, 1000, 500, 60);
+        for (int attempt = 1; attempt <= 8; attempt++) {
+            long ceiling = Math.min(1000, 100L << (attempt - 1));
+            for (int i = 0; i < 100; i++) {
+                assertThat(policy.computeDelay(attempt, false)).isBetween(0L, ceiling);
+                assertThat(policy.computeDelay(attempt, true)).isBetween(500L, Math.max(500L, ceiling));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.jenkins.plugins.codeinsights.CodeInsightsPublisher.OutsideDiff;
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CodeInsightsPublisherTest {
+
+    private DiffIndex diff;
+
+    @BeforeEach
+    void setup() throws IOException {
+        // the pull request adds the first 150 lines of A.java
+        StringBuilder patch = new StringBuilder("""
+                diff --git a/src/A.java b/src/A.java
+                new file mode 100644
+                --- /dev/null
+                +++ b/src/A.java
+                @@ -0,0 +1,150 @@
+                """);
+        for (int i = 0; i < 150; i++) {
+            patch.append("+line\n");
+        }
+        diff = DiffIndex.parse(new StringReader(patch.toString()));
+    }
+
+    /*
+     * 10000 findings, 150 of them on lines of the diff and 3 without line.
+     */
+    private static List<Annotation> findings() {
+        List<Annotation> annotations = new ArrayList<>();
+        int inDiff = 0;
+        for (int i = 0; i < 10000; i++) {
+            Annotation annotation = new Annotation();
+            annotation.setSeverity(AnnotationSeverity.HIGH);
+            annotation.setTitle("Finding " + i);
+            if (i % 66 == 0 && inDiff < 150) {
+                annotation.setPath("src/A.java");
+                annotation.setLine(++inDiff);
+            } else if (i % 3333 == 1) {
+                annotation.setPath("src/B.java");
+            } else {
+                annotation.setPath("src/B.java");
+                annotation.setLine(i);
+            }
+            annotations.add(annotation);
+        }
+        return annotations;
+    }
+
+    private static List<List<Annotation>> chunks(Iterator<Annotation> annotations) {
+        List<List<Annotation>> chunks = new ArrayList<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        while (annotations.hasNext()) {
+            List<Annotation> chunk = new ArrayList<>();
+            CodeInsightsPublisher.nextChunk(annotations, chunk, "report", occurrences);
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    @Test
+    void chunks_are_filled_with_annotations_in_the_diff() {
+        List<List<Annotation>> chunks = chunks(CodeInsightsPublisher.filterOutsideDiff(findings().iterator(), diff, OutsideDiff.DROP));
+
+        assertThat(chunks).extracting(List::size).containsExactly(100, 53);
+        assertThat(chunks).flatExtracting(chunk -> chunk).filteredOn(annotation -> annotation.getLine() == 0).hasSize(3);
+    }
+
+    @Test
+    void annotations_outside_the_diff_are_downranked() {
+        List<List<Annotation>> chunks = chunks(CodeInsightsPublisher.filterOutsideDiff(findings().iterator(), diff, OutsideDiff.DOWNRANK));
+
+        assertThat(chunks).hasSize(100);
+        assertThat(chunks).flatExtracting(chunk -> chunk)
+                .filteredOn(annotation -> annotation.getSeverity() == AnnotationSeverity.HIGH).hasSize(153);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+class DiffIndexTest {
+
+    private static final String DIFF = """
+            diff --git a/src/main/java/Foo.java b/src/main/java/Foo.java
+            index 1111111..2222222 100644
+            --- a/src/main/java/Foo.java
+            +++ b/src/main/java/Foo.java
+            @@ -10,6 +10,8 @@ public class Foo {
+                 int a;
+            -    int b;
+            +    int c;
+            +++ not a header
+            @@ -40 +42 @@ public class Foo {
+            -    return a;
+            +    return c;
+            diff --git a/src/main/java/Bar.java b/src/main/java/Bar.java
+            new file mode 100644
+            --- /dev/null
+            +++ b/src/main/java/Bar.java
+            @@ -0,0 +1,3 @@
+            +class Bar {
+            +}
+            +
+            diff --git a/src/main/java/Old.java b/src/main/java/Old.java
+            deleted file mode 100644
+            --- a/src/main/java/Old.java
+            +++ /dev/null
+            @@ -1,2 +0,0 @@
+            -class Old {
+            -}
+            """;
+
+    @Test
+    void indexes_the_new_side_of_the_hunks() throws IOException {
+        DiffIndex diff = DiffIndex.parse(new StringReader(DIFF));
+
+        assertThat(diff.getFileCount()).isEqualTo(2);
+        assertThat(diff.contains("src/main/java/Foo.java", 9)).isFalse();
+        assertThat(diff.contains("src/main/java/Foo.java", 10)).isTrue();
+        assertThat(diff.contains("src/main/java/Foo.java", 17)).isTrue();
+        assertThat(diff.contains("src/main/java/Foo.java", 18)).isFalse();
+        assertThat(diff.contains("src/main/java/Foo.java", 42)).isTrue();
+        assertThat(diff.contains("src/main/java/Foo.java", 43)).isFalse();
+        assertThat(diff.contains("src/main/java/Bar.java", 3)).isTrue();
+    }
+
+    @Test
+    void added_lines_that_look_like_headers_are_not_files() throws IOException {
+        DiffIndex diff = DiffIndex.parse(new StringReader(DIFF));
+
+        assertThat(diff.containsFile("not a header")).isFalse();
+    }
+
+    @Test
+    void removed_files_have_no_lines() throws IOException {
+        DiffIndex diff = DiffIndex.parse(new StringReader(DIFF));
+
+        assertThat(diff.containsFile("src/main/java/Old.java")).isFalse();
+        assertThat(diff.containsFile("/dev/null")).isFalse();
+    }
+
+    @Test
+    void annotations_without_a_line_are_always_covered() throws IOException {
+        DiffIndex diff = DiffIndex.parse(new StringReader(DIFF));
+
+        assertThat(diff.covers(annotation(null, 0))).isTrue();
+        assertThat(diff.covers(annotation("src/test/java/FooTest.java", 0))).isTrue();
+        assertThat(diff.covers(annotation("src/main/java/Foo.java", 11))).isTrue();
+        assertThat(diff.covers(annotation("src/main/java/Foo.java", 30))).isFalse();
+        assertThat(diff.covers(annotation("src/test/java/FooTest.java", 11))).isFalse();
+    }
+
+    private static Annotation annotation(String path, int line) {
+        Annotation annotation = new Annotation();
+        annotation.setPath(path);
+        annotation.setLine(line);
+        return annotation;
+    }
+}
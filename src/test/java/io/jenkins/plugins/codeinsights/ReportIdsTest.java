@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.jenkins.plugins.codeinsights.api.dto.ReportType;
+import org.junit.jupiter.api.Test;
+
+class ReportIdsTest {
+
+    @Test
+    void ids_are_stable() {
+        assertThat(ReportIds.of("org/repo/main", ReportType.TEST, "builder"))
+                .isEqualTo(ReportIds.of("org/repo/main", ReportType.TEST, "builder"))
+                .matches("jenkins-[0-9a-f]{16}-[0-9a-f]{8}");
+    }
+
+    @Test
+    void ids_of_a_job_share_its_prefix() {
+        String test = ReportIds.of("org/repo/main", ReportType.TEST, "builder");
+        String bug = ReportIds.of("org/repo/main", ReportType.BUG, "builder");
+        String other = ReportIds.of("org/repo/main", ReportType.TEST, "other");
+
+        assertThat(test).isNotEqualTo(bug).isNotEqualTo(other);
+        assertThat(bug.substring(0, 25)).isEqualTo(test.substring(0, 25));
+        assertThat(other.substring(0, 25)).isEqualTo(test.substring(0, 25));
+    }
+
+    @Test
+    void ids_of_different_jobs_do_not_collide() {
+        String main = ReportIds.of("org/repo/main", ReportType.TEST, "builder");
+        String pr = ReportIds.of("org/repo/PR-1", ReportType.TEST, "builder");
+
+        assertThat(main).isNotEqualTo(pr);
+        assertThat(main.substring(0, 25)).isNotEqualTo(pr.substring(0, 25));
+    }
+
+    @Test
+    void missing_type_and_builder_are_allowed() {
+        assertThat(ReportIds.of("org/repo/main", null, null)).startsWith(ReportIds.PREFIX);
+    }
+}
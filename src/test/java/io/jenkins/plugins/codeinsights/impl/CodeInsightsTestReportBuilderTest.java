@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.tasks.junit.CaseResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CodeInsightsTestReportBuilderTest {
+
+    private static CaseResult failure(String name, int age) {
+        CaseResult failure = mock(CaseResult.class);
+        when(failure.getFullName()).thenReturn(name);
+        when(failure.getAge()).thenReturn(age);
+        return failure;
+    }
+
+    @Test
+    void selects_new_failures_first_then_by_name() {
+        CaseResult oldA = failure("a.OldTest.test", 5);
+        CaseResult newB = failure("b.NewTest.test", 1);
+        CaseResult newA = failure("a.NewTest.test", 1);
+        CaseResult recent = failure("c.RecentTest.test", 2);
+        List<CaseResult> failures = new ArrayList<>(List.of(oldA, newB, newA, recent));
+        Collections.shuffle(failures);
+
+        assertThat(CodeInsightsTestReportBuilder.selectFailures(failures, 3)).containsExactly(newA, newB, recent);
+    }
+
+    @Test
+    void selects_all_failures_under_the_limit() {
+        CaseResult first = failure("a.Test.test", 1);
+        CaseResult second = failure("b.Test.test", 3);
+
+        assertThat(CodeInsightsTestReportBuilder.selectFailures(List.of(second, first), 10)).containsExactly(first, second);
+    }
+
+    @Test
+    void selects_nothing_when_limit_is_zero() {
+        assertThat(CodeInsightsTestReportBuilder.selectFailures(List.of(failure("a.Test.test", 1)), 0)).isEmpty();
+    }
+
+    @Test
+    void source_path_is_matched_among_changed_files() {
+        Map<String, List<String>> sources = CodeInsightsTestReportBuilder.indexSources(List.of(
+                "service/src/test/kotlin/com/acme/FooTest.kt",
+                "other/src/test/java/org/acme/FooTest.java",
+                "README.md"));
+
+        assertThat(CodeInsightsTestReportBuilder.toSourcePath("com.acme.FooTest$Nested", sources)).isEqualTo("service/src/test/kotlin/com/acme/FooTest.kt");
+        assertThat(CodeInsightsTestReportBuilder.toSourcePath("org.acme.FooTest", sources)).isEqualTo("other/src/test/java/org/acme/FooTest.java");
+    }
+
+    @Test
+    void source_path_defaults_to_the_test_source_root() {
+        Map<String, List<String>> sources = CodeInsightsTestReportBuilder.indexSources(List.of("src/test/java/org/acme/FooTest.java"));
+
+        assertThat(CodeInsightsTestReportBuilder.toSourcePath("com.acme.FooTest", sources)).isEqualTo("src/test/java/com/acme/FooTest.java");
+        assertThat(CodeInsightsTestReportBuilder.toSourcePath(" ", sources)).isNull();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CoverageParserTest {
+
+    private static final String JACOCO = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <!DOCTYPE report PUBLIC "-//JACOCO//DTD Report 1.1//EN" "report.dtd">
+            <report name="app">
+              <package name="com/acme">
+                <sourcefile name="Foo.java">
+                  <line nr="3" mi="0" ci="2" mb="0" cb="0"/>
+                  <line nr="4" mi="2" ci="0" mb="0" cb="0"/>
+                  <line nr="5" mi="1" ci="0" mb="0" cb="0"/>
+                  <line nr="6" mi="1" ci="1" mb="0" cb="0"/>
+                  <counter type="LINE" missed="2" covered="2"/>
+                </sourcefile>
+                <sourcefile name="Bar.java">
+                  <line nr="1" mi="1" ci="0" mb="0" cb="0"/>
+                  <counter type="LINE" missed="1" covered="0"/>
+                </sourcefile>
+                <counter type="LINE" missed="3" covered="2"/>
+              </package>
+              <counter type="INSTRUCTION" missed="5" covered="5"/>
+              <counter type="LINE" missed="3" covered="2"/>
+            </report>
+            """;
+
+    private static final String COBERTURA = """
+            <?xml version="1.0" ?>
+            <coverage lines-valid="4" lines-covered="3" line-rate="0.75">
+              <packages>
+                <package name="acme">
+                  <classes>
+                    <class name="foo.py" filename="acme/foo.py">
+                      <methods>
+                        <method name="run">
+                          <lines>
+                            <line number="2" hits="0"/>
+                          </lines>
+                        </method>
+                      </methods>
+                      <lines>
+                        <line number="1" hits="1"/>
+                        <line number="2" hits="0"/>
+                        <line number="3" hits="4"/>
+                        <line number="4" hits="2"/>
+                      </lines>
+                    </class>
+                  </classes>
+                </package>
+              </packages>
+            </coverage>
+            """;
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reads_jacoco_totals_and_uncovered_lines_of_changed_files() throws IOException {
+        CoverageParser parser = new CoverageParser(List.of("app/src/main/java/com/acme/Foo.java"));
+        parser.parse(stream(JACOCO));
+
+        assertThat(parser.getCoveredLines()).isEqualTo(2);
+        assertThat(parser.getMissedLines()).isEqualTo(3);
+        assertThat(parser.getLineCoverage()).isEqualTo(40.0);
+        // Bar.java is not changed
+        assertThat(parser.getUncoveredLines()).containsOnlyKeys("app/src/main/java/com/acme/Foo.java");
+        assertThat(parser.getUncoveredLines().get("app/src/main/java/com/acme/Foo.java").stream().boxed()).containsExactly(4, 5);
+    }
+
+    @Test
+    void reads_cobertura_totals_and_uncovered_lines_of_changed_files() throws IOException {
+        CoverageParser parser = new CoverageParser(List.of("acme/foo.py"));
+        parser.parse(stream(COBERTURA));
+
+        assertThat(parser.getCoveredLines()).isEqualTo(3);
+        assertThat(parser.getMissedLines()).isEqualTo(1);
+        assertThat(parser.getUncoveredLines().get("acme/foo.py").stream().boxed()).containsExactly(2);
+    }
+
+    @Test
+    void aggregates_more_reports() throws IOException {
+        CoverageParser parser = new CoverageParser(List.of());
+        parser.parse(stream(JACOCO));
+        parser.parse(stream(COBERTURA));
+
+        assertThat(parser.getCoveredLines()).isEqualTo(5);
+        assertThat(parser.getMissedLines()).isEqualTo(4);
+        assertThat(parser.getUncoveredLines()).isEmpty();
+    }
+
+    @Test
+    void rejects_unsupported_reports() {
+        assertThatThrownBy(() -> new CoverageParser(List.of()).parse(stream("<testsuite/>"))).isInstanceOf(IOException.class);
+    }
+}
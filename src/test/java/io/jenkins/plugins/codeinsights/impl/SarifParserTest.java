@@ -0,0 +1,248 @@
+/*
+ * Copyright 2025 Nikolas Falco
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.jenkins.plugins.codeinsights.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import io.jenkins.plugins.codeinsights.api.dto.Annotation;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationResult;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationSeverity;
+import io.jenkins.plugins.codeinsights.api.dto.AnnotationType;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SarifParserTest {
+
+    private static final String LOG = """
+            {
+              "version": "2.1.0",
+              "runs": [
+                {
+                  "tool": {
+                    "driver": {
+                      "name": "CodeQL",
+                      "rules": [
+                        {
+                          "id": "java/sql-injection",
+                          "shortDescription": { "text": "SQL injection" },
+                          "helpUri": "https://codeql.github.com/sql-injection",
+                          "properties": { "security-severity": "9.8", "tags": [ "security" ] }
+                        },
+                        {
+                          "id": "java/unused-variable",
+                          "shortDescription": { "text": "Unused variable" },
+                          "defaultConfiguration": { "level": "note" }
+                        }
+                      ]
+                    }
+                  },
+                  "results": [
+                    {
+                      "ruleId": "java/sql-injection",
+                      "level": "error",
+                      "message": { "text": "Query built from user input" },
+                      "locations": [ { "physicalLocation": { "artifactLocation": { "uri": "src/main/java/Dao.java" }, "region": { "startLine": 42 } } } ]
+                    },
+                    {
+                      "ruleIndex": 1,
+                      "message": { "text": "Variable x is never read" },
+                      "locations": [ { "physicalLocation": { "artifactLocation": { "uri": "./src/main/java/Foo.java" }, "region": { "startLine": 7 } } } ]
+                    },
+                    {
+                      "ruleId": "java/unused-variable",
+                      "kind": "pass"
+                    },
+                    {
+                      "ruleId": "java/unknown",
+                      "level": "warning",
+                      "message": { "text": "Something odd" }
+                    }
+                  ]
+                }
+              ]
+            }
+            """;
+
+    // tool and bases are declared after the results
+    private static final String LOG_WITH_BASES = """
+            {
+              "runs": [
+                {
+                  "results": [
+                    {
+                      "ruleId": "r1",
+                      "message": { "text": "In a module" },
+                      "locations": [ { "physicalLocation": { "artifactLocation": { "uri": "src/A.java", "uriBaseId": "SRCROOT" }, "region": { "startLine": 1 } } } ]
+                    },
+                    {
+                      "ruleId": "r1",
+                      "message": { "text": "In the workspace" },
+                      "locations": [ { "physicalLocation": { "artifactLocation": { "uri": "file:///home/ci/ws/src/B.java" }, "region": { "startLine": 2 } } } ]
+                    },
+                    {
+                      "ruleId": "r1",
+                      "message": { "text": "Generated" },
+                      "locations": [ { "physicalLocation": { "artifactLocation": { "uri": "file:///tmp/gen/C.java" }, "region": { "startLine": 3 } } } ]
+                    }
+                  ],
+                  "tool": {
+                    "driver": {
+                      "name": "Semgrep",
+                      "rules": [ { "id": "r1", "shortDescription": { "text": "Rule one" }, "defaultConfiguration": { "level": "error" } } ]
+                    }
+                  },
+                  "originalUriBaseIds": { "SRCROOT": { "uri": "file:///home/ci/ws/module/" } }
+                }
+              ]
+            }
+            """;
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void counts_results_by_severity() throws IOException {
+        SarifParser parser = new SarifParser(10);
+        parser.parse(stream(LOG));
+
+        assertThat(parser.getTools()).containsExactly("CodeQL");
+        assertThat(parser.getTotalCount()).isEqualTo(3);
+        assertThat(parser.getCount(AnnotationSeverity.CRITICAL)).isEqualTo(1);
+        assertThat(parser.getCount(AnnotationSeverity.MEDIUM)).isEqualTo(1);
+        assertThat(parser.getCount(AnnotationSeverity.LOW)).isEqualTo(1);
+    }
+
+    @Test
+    void annotations_use_the_rule_metadata() throws IOException {
+        SarifParser parser = new SarifParser(10);
+        parser.parse(stream(LOG));
+
+        List<Annotation> annotations = parser.getAnnotations();
+        assertThat(annotations).hasSize(3);
+
+        Annotation injection = annotations.get(0);
+        assertThat(injection.getSeverity()).isEqualTo(AnnotationSeverity.CRITICAL);
+        assertThat(injection.getAnnotationType()).isEqualTo(AnnotationType.VULNERABILITY);
+        assertThat(injection.getResult()).isEqualTo(AnnotationResult.FAILED);
+        assertThat(injection.getTitle()).isEqualTo("SQL injection");
+        assertThat(injection.getSummary()).isEqualTo("Query built from user input");
+        assertThat(injection.getLink()).isEqualTo("https://codeql.github.com/sql-injection");
+        assertThat(injection.getPath()).isEqualTo("src/main/java/Dao.java");
+        assertThat(injection.getLine()).isEqualTo(42);
+
+        Annotation unused = annotations.get(2);
+        assertThat(unused.getSeverity()).isEqualTo(AnnotationSeverity.LOW);
+        assertThat(unused.getTitle()).isEqualTo("Unused variable");
+        assertThat(unused.getPath()).isEqualTo("src/main/java/Foo.java");
+        assertThat(unused.getLine()).isEqualTo(7);
+    }
+
+    @Test
+    void keeps_only_the_most_severe_annotations() throws IOException {
+        SarifParser parser = new SarifParser(1);
+        parser.parse(stream(LOG));
+
+        assertThat(parser.getTotalCount()).isEqualTo(3);
+        assertThat(parser.getAnnotations()).singleElement()
+                .extracting(Annotation::getSeverity).isEqualTo(AnnotationSeverity.CRITICAL);
+    }
+
+    @Test
+    void aggregates_more_logs() throws IOException {
+        SarifParser parser = new SarifParser(10);
+        parser.parse(stream(LOG));
+        parser.parse(stream(LOG));
+
+        assertThat(parser.getTotalCount()).isEqualTo(6);
+        assertThat(parser.getAnnotations()).hasSize(6);
+    }
+
+    @Test
+    void results_before_the_tool_use_the_rule_metadata() throws IOException {
+        SarifParser parser = new SarifParser(10);
+        parser.parse(stream(LOG_WITH_BASES));
+
+        assertThat(parser.getTools()).containsExactly("Semgrep");
+        assertThat(parser.getCount(AnnotationSeverity.HIGH)).isEqualTo(3);
+        assertThat(parser.getAnnotations()).extracting(Annotation::getTitle).containsOnly("Rule one");
+    }
+
+    @Test
+    void results_before_the_tool_are_counted_and_capped() throws IOException {
+        StringBuilder results = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String level = i % 100 == 0 ? "error" : "note";
+            results.append(i == 0 ? "" : ",").append("""
+                    { "ruleId": "r1", "level": "%s", "locations": [ { "physicalLocation": {
+                        "artifactLocation": { "uri": "src/F%d.java" }, "region": { "startLine": 1 } } } ] }
+                    """.formatted(level, i));
+        }
+        String log = """
+                { "runs": [ { "results": [ %s ], "tool": { "driver": { "name": "Semgrep", "rules": [ { "id": "r1" } ] } } } ] }
+                """.formatted(results);
+        SarifParser parser = new SarifParser(5);
+        parser.parse(stream(log));
+
+        assertThat(parser.getTotalCount()).isEqualTo(1000);
+        assertThat(parser.getCount(AnnotationSeverity.HIGH)).isEqualTo(10);
+        assertThat(parser.getCount(AnnotationSeverity.LOW)).isEqualTo(990);
+        assertThat(parser.getAnnotations()).hasSize(5)
+                .extracting(Annotation::getSeverity).containsOnly(AnnotationSeverity.HIGH);
+    }
+
+    @Test
+    void locations_are_relative_to_the_checkout_root() throws IOException {
+        SarifParser parser = new SarifParser(10, List.of("/home/ci/ws"));
+        parser.parse(stream(LOG_WITH_BASES));
+
+        assertThat(parser.getAnnotations()).extracting(Annotation::getPath, Annotation::getLine)
+                .containsExactly(tuple("module/src/A.java", 1), tuple("src/B.java", 2), tuple(null, 3));
+    }
+
+    @Test
+    void locations_are_relative_to_the_absolute_bases_without_checkout_root() throws IOException {
+        SarifParser parser = new SarifParser(10);
+        parser.parse(stream(LOG_WITH_BASES));
+
+        assertThat(parser.getAnnotations()).extracting(Annotation::getPath, Annotation::getLine)
+                .containsExactly(tuple("src/A.java", 1), tuple(null, 2), tuple(null, 3));
+    }
+
+    @Test
+    void windows_locations_are_relative_to_the_checkout_root() throws IOException {
+        String log = """
+                { "runs": [ { "results": [ { "ruleId": "r1", "locations": [ { "physicalLocation": {
+                    "artifactLocation": { "uri": "file:///C:/ws/src/D.java" }, "region": { "startLine": 4 } } } ] } ] } ] }
+                """;
+        SarifParser parser = new SarifParser(10, List.of("C:\\ws"));
+        parser.parse(stream(log));
+
+        assertThat(parser.getAnnotations()).singleElement().extracting(Annotation::getPath).isEqualTo("src/D.java");
+    }
+
+    @Test
+    void rejects_what_is_not_a_log() {
+        assertThatThrownBy(() -> new SarifParser(10).parse(stream("[]"))).isInstanceOf(IOException.class);
+    }
+}